@@ -1,6 +1,9 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -10,11 +13,16 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.dto.film.FilmDto;
 import ru.yandex.practicum.filmorate.dto.film.UpdateFilmRequest;
+import ru.yandex.practicum.filmorate.dto.page.PageDto;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.service.film.FilmService;
+import ru.yandex.practicum.filmorate.service.stats.FilmActivityStats;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Collection;
 import java.util.List;
 
@@ -25,15 +33,51 @@ public class FilmController {
     // Константа для хранения значения по умолчанию количества популярных фильмов, отображаемых в ответе
     private static final String DEFAULT_COUNT_POPULAR_MOVIES_DISPLAYED = "10";
 
+    private static final String NDJSON = "application/x-ndjson"; // Один JSON-объект на строку
+
     private final FilmService filmService; // Сервис для работы с фильмами
+    private final ObjectMapper objectMapper; // Настроенный Spring сериализатор JSON
+    private final FilmActivityStats filmActivityStats; // Статистика просмотров карточек фильмов
 
-    public FilmController(FilmService filmService) {
+    public FilmController(FilmService filmService, ObjectMapper objectMapper, FilmActivityStats filmActivityStats) {
         this.filmService = filmService;
+        this.objectMapper = objectMapper;
+        this.filmActivityStats = filmActivityStats;
+    }
+
+    /* Обрабатывает GET-запросы по пути "/films". Без параметров возвращает все фильмы,
+    с afterId и/или limit - страницу фильмов по возрастанию id; курсор следующей страницы
+    передается в заголовке X-Next-Cursor, на последней странице заголовка нет. */
+    @GetMapping
+    public ResponseEntity<Collection<FilmDto>> findAll(@RequestParam(required = false) Long afterId,
+                                                       @RequestParam(required = false) Integer limit) {
+        if (afterId == null && limit == null) {
+            return ResponseEntity.ok(filmService.getFilms()); // Возвращает все фильмы
+        }
+        PageDto<FilmDto> page = filmService.getFilmsPage(afterId, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(PageDto.NEXT_CURSOR_HEADER, String.valueOf(page.getNextCursor()));
+        }
+        return response.body(page.getItems());
     }
 
-    @GetMapping // Обрабатывает GET-запросы по пути "/films"
-    public Collection<FilmDto> findAll() {
-        return filmService.getFilms(); // Возвращает все фильмы
+    /* Обрабатывает GET-запросы по пути "/films/export": выгрузка всего каталога в формате NDJSON.
+    Каждый фильм сериализуется и пишется в поток ответа сразу после загрузки своей порции,
+    список всех фильмов в памяти не собирается. */
+    @GetMapping(value = "/export", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> export() {
+        StreamingResponseBody body = outputStream -> filmService.exportFilms(film -> {
+            try {
+                outputStream.write(objectMapper.writeValueAsBytes(film));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException("Ошибка записи выгрузки фильмов", e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(body);
     }
 
     @PostMapping // Обрабатывает POST-запросы по пути "/films"
@@ -68,10 +112,20 @@ public class FilmController {
         return filmService.getMostPopularByNumberOfLikes(count, genreId, year);
     }
 
+    /* Обрабатывает GET-запросы по пути "/films/trending": фильмы, набравшие больше всего лайков
+    за последнее окно, причем недавние лайки весят больше старых */
+    @GetMapping("/trending")
+    public List<FilmDto> getTrendingFilms(
+            @RequestParam(required = false, defaultValue = DEFAULT_COUNT_POPULAR_MOVIES_DISPLAYED) Integer count) {
+        return filmService.getTrendingFilms(count);
+    }
+
     // Обрабатывает GET-запросы по пути "/films/{id}" для получения фильма с жанром по его ID
     @GetMapping("/{id}")
     public FilmDto getWithGenre(@PathVariable Long id) {
-        return filmService.getWithGenre(id);
+        FilmDto film = filmService.getWithGenre(id);
+        filmActivityStats.recordView(id); // Просмотром считается только успешно найденный фильм
+        return film;
     }
 
     // Обрабатывает DELETE-запросы для удаления фильма
@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.dto.importing.ImportResultDto;
+import ru.yandex.practicum.filmorate.service.importing.BulkImportService;
+
+import java.io.IOException;
+
+/* Массовая загрузка данных. Тело запроса - NDJSON, один объект на строку; тело читается потоком,
+поэтому размер файла ограничен только размером порции, а не всей загрузки. */
+@RestController
+@RequestMapping("/import")
+@RequiredArgsConstructor
+public class ImportController {
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final BulkImportService bulkImportService;
+
+    @PostMapping(value = "/users", consumes = NDJSON)
+    public ImportResultDto importUsers(HttpServletRequest request) throws IOException {
+        return bulkImportService.importUsers(request.getInputStream());
+    }
+
+    @PostMapping(value = "/films", consumes = NDJSON)
+    public ImportResultDto importFilms(HttpServletRequest request) throws IOException {
+        return bulkImportService.importFilms(request.getInputStream());
+    }
+
+    @PostMapping(value = "/likes", consumes = NDJSON)
+    public ImportResultDto importLikes(HttpServletRequest request) throws IOException {
+        return bulkImportService.importLikes(request.getInputStream());
+    }
+}
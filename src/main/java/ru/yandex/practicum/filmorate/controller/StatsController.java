@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.dto.stats.FeedPipelineStatsDto;
+import ru.yandex.practicum.filmorate.dto.stats.HeavyHittersDto;
+import ru.yandex.practicum.filmorate.eventHanding.FeedNotificationService;
+import ru.yandex.practicum.filmorate.service.stats.FilmActivityStats;
+
+// Приблизительная статистика активности для дашбордов
+@RestController
+@RequestMapping("/stats")
+@RequiredArgsConstructor
+public class StatsController {
+
+    private static final String DEFAULT_COUNT = "10";
+
+    private final FilmActivityStats filmActivityStats;
+    private final FeedNotificationService feedNotificationService;
+
+    /* Обрабатывает GET-запросы по пути "/stats/films/{metric}", где metric - likes или views:
+    фильмы с наибольшим числом событий с момента запуска и границы погрешности оценок */
+    @GetMapping("/films/{metric}")
+    public HeavyHittersDto getTopFilms(@PathVariable String metric,
+                                       @RequestParam(required = false, defaultValue = DEFAULT_COUNT) Integer count) {
+        return filmActivityStats.getTop(metric, count);
+    }
+
+    // Обрабатывает GET-запросы по пути "/stats/feed": глубина очереди записи ленты и время записи пакетов
+    @GetMapping("/feed")
+    public FeedPipelineStatsDto getFeedPipelineStats() {
+        return feedNotificationService.getStats();
+    }
+}
@@ -2,9 +2,11 @@ package ru.yandex.practicum.filmorate.controller;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.yandex.practicum.filmorate.dto.film.FilmDto;
 import ru.yandex.practicum.filmorate.dto.feed.FeedDto;
+import ru.yandex.practicum.filmorate.dto.page.PageDto;
 import ru.yandex.practicum.filmorate.dto.user.UpdateUserRequest;
 import ru.yandex.practicum.filmorate.dto.user.UserDto;
 import ru.yandex.practicum.filmorate.model.User;
@@ -21,9 +23,20 @@ public class UserController {
     private final UserService userService;
     private final FeedService feedService;
 
-    @GetMapping // Обрабатывает GET-запросы по пути "/users"
-    public List<UserDto> findAll() {
-        return userService.getUsers(); // Возвращает всех пользователей
+    /* Обрабатывает GET-запросы по пути "/users". Без параметров возвращает всех пользователей,
+    с afterId и/или limit - страницу по возрастанию id с курсором в заголовке X-Next-Cursor. */
+    @GetMapping
+    public ResponseEntity<List<UserDto>> findAll(@RequestParam(required = false) Long afterId,
+                                                 @RequestParam(required = false) Integer limit) {
+        if (afterId == null && limit == null) {
+            return ResponseEntity.ok(userService.getUsers()); // Возвращает всех пользователей
+        }
+        PageDto<UserDto> page = userService.getUsersPage(afterId, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(PageDto.NEXT_CURSOR_HEADER, String.valueOf(page.getNextCursor()));
+        }
+        return response.body(page.getItems());
     }
 
     @PostMapping // Обрабатывает POST-запросы по пути "/users"
@@ -56,11 +69,21 @@ public class UserController {
         return userService.unfriending(id, friendId);
     }
 
-    // Обрабатывает GET-запросы для получения списка друзей пользователя
+    /* Обрабатывает GET-запросы для получения списка друзей пользователя. Без параметров возвращает всех
+    друзей, с afterId и/или limit - страницу по возрастанию id с курсором в заголовке X-Next-Cursor. */
     @GetMapping("/{id}/friends")
-    public List<UserDto> getUserFriends(@PathVariable Long id) {
-        // Возвращает коллекцию друзей указанного пользователя
-        return userService.getUserFriends(id);
+    public ResponseEntity<List<UserDto>> getUserFriends(@PathVariable Long id,
+                                                        @RequestParam(required = false) Long afterId,
+                                                        @RequestParam(required = false) Integer limit) {
+        if (afterId == null && limit == null) {
+            return ResponseEntity.ok(userService.getUserFriends(id)); // Возвращает всех друзей пользователя
+        }
+        PageDto<UserDto> page = userService.getUserFriendsPage(id, afterId, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(PageDto.NEXT_CURSOR_HEADER, String.valueOf(page.getNextCursor()));
+        }
+        return response.body(page.getItems());
     }
 
     // Обрабатывает GET-запросы для получения списка общих друзей
@@ -70,6 +93,14 @@ public class UserController {
         return userService.listOfMutualFriends(id, otherId);
     }
 
+    // Обрабатывает GET-запросы для получения рекомендуемых друзей: друзей друзей по числу общих друзей
+    @GetMapping("/{id}/friends/suggestions")
+    public List<UserDto> friendSuggestions(@PathVariable Long id,
+                                           @RequestParam(required = false) Integer limit) {
+        // Без limit возвращается 10 рекомендаций
+        return userService.getFriendSuggestions(id, limit);
+    }
+
     // Обрабатывает DELETE-запросы для удаления пользователя
     @DeleteMapping("/{id}")
     public void deleteUser(@PathVariable Long id) {
@@ -78,13 +109,27 @@ public class UserController {
 
     // Обрабатывает Get-запросы для получения списка рекомендаций по фильмам.
     @GetMapping("{id}/recommendations")
-    public List<FilmDto> recommendationsFilm(@PathVariable Long id) {
-        return userService.getRecommendFilms(id);
+    public List<FilmDto> recommendationsFilm(@PathVariable Long id,
+                                             @RequestParam(required = false) Integer limit) {
+        // Без limit возвращаются все рекомендации
+        return userService.getRecommendFilms(id, limit);
     }
 
+    /* Обрабатывает GET-запросы для получения ленты событий пользователя по возрастанию id. Без параметров
+    возвращает всю ленту, с beforeEventId и/или limit - последние limit событий до beforeEventId;
+    курсор для более ранних событий - в заголовке X-Next-Cursor. */
     @GetMapping("/{id}/feed")
-    public List<FeedDto> getUserFeeds(@PathVariable Long id) {
-        // Возвращает ленту новостей указанного пользователя
-        return feedService.getUserFeed(id);
+    public ResponseEntity<List<FeedDto>> getUserFeeds(@PathVariable Long id,
+                                                      @RequestParam(required = false) Long beforeEventId,
+                                                      @RequestParam(required = false) Integer limit) {
+        if (beforeEventId == null && limit == null) {
+            return ResponseEntity.ok(feedService.getUserFeed(id)); // Возвращает ленту новостей целиком
+        }
+        PageDto<FeedDto> page = feedService.getUserFeedPage(id, beforeEventId, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(PageDto.NEXT_CURSOR_HEADER, String.valueOf(page.getNextCursor()));
+        }
+        return response.body(page.getItems());
     }
 }
\ No newline at end of file
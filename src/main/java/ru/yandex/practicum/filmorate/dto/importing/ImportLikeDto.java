@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.dto.importing;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+// Строка массовой загрузки лайков: пользователь userId лайкнул фильм filmId
+@Data // Аннотация Lombok для автоматической генерации геттеров, сеттеров, toString и других методов
+public class ImportLikeDto {
+    @NotNull(message = "Не указан id пользователя")
+    @Positive(message = "id пользователя должен быть положительным")
+    private Long userId;
+
+    @NotNull(message = "Не указан id фильма")
+    @Positive(message = "id фильма должен быть положительным")
+    private Long filmId;
+}
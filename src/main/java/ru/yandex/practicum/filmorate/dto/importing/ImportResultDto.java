@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.dto.importing;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+// Итог массовой загрузки: сколько строк сохранено, сколько отклонено и причины первых отклонений
+@Data
+@Builder
+public class ImportResultDto {
+    private long imported;
+    private long rejected;
+    private long elapsedMs;
+    private List<String> errors; // Не больше ограниченного числа сообщений вида "Строка N: причина"
+}
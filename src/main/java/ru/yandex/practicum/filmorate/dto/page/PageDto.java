@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.dto.page;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+import java.util.function.Function;
+
+// Страница списка при постраничном (keyset) обходе: элементы и курсор для запроса следующей страницы
+@Data
+@Builder
+public class PageDto<T> {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor"; // Заголовок ответа с курсором
+    public static final int DEFAULT_LIMIT = 100; // Размер страницы, если limit не передан
+    public static final int MAX_LIMIT = 1000; // Максимальный размер страницы
+
+    private List<T> items;
+    private Long nextCursor; // id последнего элемента страницы или null, если страница последняя
+
+    /* Метод собирает страницу из limit + 1 прочитанных строк: лишняя строка только показывает,
+    что за страницей есть еще элементы, и в ответ не попадает. */
+    public static <T> PageDto<T> of(List<T> rows, int limit, Function<T, Long> idExtractor) {
+        if (rows.size() <= limit) {
+            return PageDto.<T>builder()
+                    .items(rows)
+                    .build();
+        }
+        List<T> items = rows.subList(0, limit);
+        return PageDto.<T>builder()
+                .items(items)
+                .nextCursor(idExtractor.apply(items.get(limit - 1)))
+                .build();
+    }
+}
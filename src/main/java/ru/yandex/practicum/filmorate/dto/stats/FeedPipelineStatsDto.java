@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.dto.stats;
+
+import lombok.Builder;
+import lombok.Data;
+
+/* Состояние записи событий ленты с момента запуска. queueDepth - сколько событий ждет записи сейчас;
+failed - события, которые база не приняла и после повторов, dropped - отброшенные при заполненной очереди.
+Время записи пакета (flush) - в миллисекундах. */
+@Data
+@Builder
+public class FeedPipelineStatsDto {
+    private boolean async; // false - события пишутся в базу в потоке запроса, очереди нет
+    private String backpressure;
+    private int queueDepth;
+    private int queueCapacity;
+    private long enqueued;
+    private long written;
+    private long failed;
+    private long dropped;
+    private long batches;
+    private int lastBatchSize;
+    private double lastFlushMillis;
+    private double maxFlushMillis;
+    private double averageFlushMillis;
+}
@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.dto.stats;
+
+import lombok.Builder;
+import lombok.Data;
+
+// Приблизительная частота событий одного фильма: истинное значение лежит в [minCount, count]
+@Data
+@Builder
+public class HeavyHitterDto {
+    private Long filmId;
+    private long count; // Оценка сверху
+    private long minCount; // Оценка снизу
+}
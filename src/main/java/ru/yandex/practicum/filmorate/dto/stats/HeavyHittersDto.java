@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.dto.stats;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/* Приблизительный топ фильмов по числу событий. Любой фильм, у которого событий больше guaranteedError,
+гарантированно попадает в отслеживаемые; sketchError - погрешность оценки Count-Min,
+которая не превышается с вероятностью confidence. */
+@Data
+@Builder
+public class HeavyHittersDto {
+    private String metric;
+    private long totalEvents;
+    private int capacity; // Сколько фильмов отслеживается одновременно
+    private long guaranteedError;
+    private long sketchError;
+    private double confidence;
+    private long memoryBytes; // Оценка памяти, занятой структурами метрики
+    private List<HeavyHitterDto> items;
+}
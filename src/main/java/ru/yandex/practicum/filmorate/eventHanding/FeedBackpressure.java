@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.eventHanding;
+
+//что делать с новым событием ленты, если очередь на запись заполнена
+public enum FeedBackpressure {
+    BLOCK, // ждать свободного места не дольше offer-timeout, затем потерять событие с записью в лог
+    DROP // отбросить событие сразу, запрос выполняется без записи в ленту
+}
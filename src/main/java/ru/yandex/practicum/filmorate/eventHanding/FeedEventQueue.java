@@ -0,0 +1,248 @@
+package ru.yandex.practicum.filmorate.eventHanding;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.dto.stats.FeedPipelineStatsDto;
+import ru.yandex.practicum.filmorate.model.Feed;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/* Асинхронная запись событий ленты. Событие кладется в ограниченную очередь, а отдельный поток забирает
+из нее все, что накопилось (не больше batchSize), и пишет одним пакетом: при малой нагрузке событие
+пишется сразу, при большой пакеты растут сами. Порядок событий сохраняется, потому что пишет один поток.
+Если очередь заполнена, действует политика FeedBackpressure. Неудачный пакет пишется повторно
+MAX_ATTEMPTS раз, затем события теряются с записью в лог. При остановке новые события не принимаются,
+а очередь дописывается до конца. Класс потокобезопасен. */
+@Slf4j
+class FeedEventQueue {
+
+    // Запись пакета событий в базу; возвращает число записанных событий
+    @FunctionalInterface
+    interface FeedWriter {
+        int write(List<Feed> feeds);
+    }
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long POLL_INTERVAL_MS = 100; // Как часто поток записи проверяет, не пора ли остановиться
+    private static final long RETRY_DELAY_MS = 200; // Пауза перед повтором растет с номером попытки
+
+    private final FeedWriter writer;
+    private final BlockingQueue<Feed> queue;
+    private final int capacity;
+    private final int batchSize;
+    private final FeedBackpressure backpressure;
+    private final Duration offerTimeout;
+    private final Thread consumer;
+
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock(); // Добавление не пересекается с остановкой
+    private boolean closed;
+
+    private final AtomicLong enqueued = new AtomicLong(); // Принято в очередь
+    private final AtomicLong dropped = new AtomicLong(); // Не попало в очередь: заполнена или остановлена
+    private final Object progress = new Object(); // Защищает счетчики ниже и будит ожидающих flush
+    private long processed; // Забрано из очереди и записано или потеряно
+    private long written;
+    private long failed;
+    private long batches;
+    private int lastBatchSize;
+    private long lastFlushNanos;
+    private long maxFlushNanos;
+    private long totalFlushNanos;
+
+    FeedEventQueue(FeedWriter writer, int capacity, int batchSize, FeedBackpressure backpressure,
+                   Duration offerTimeout) {
+        if (batchSize <= 0 || capacity < batchSize) {
+            throw new IllegalArgumentException("Некорректные размеры очереди ленты: " + capacity + ", " + batchSize);
+        }
+        this.writer = writer;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.backpressure = backpressure;
+        this.offerTimeout = offerTimeout;
+        this.consumer = new Thread(this::run, "feed-writer");
+        this.consumer.setDaemon(true); // Штатную остановку обеспечивает close, поток не должен держать JVM
+    }
+
+    void start() {
+        consumer.start();
+    }
+
+    /* Метод ставит событие в очередь на запись. При заполненной очереди BLOCK ждет места не дольше
+    offerTimeout, а DROP сразу отбрасывает событие. Не попавшее в очередь событие считается отброшенным. */
+    void add(Feed feed) {
+        closeLock.readLock().lock();
+        try {
+            if (closed) {
+                dropped.incrementAndGet();
+                log.warn("Событие ленты после остановки отброшено: {}", feed);
+                return;
+            }
+            if (queue.offer(feed) || backpressure == FeedBackpressure.BLOCK && offerWithTimeout(feed)) {
+                enqueued.incrementAndGet();
+                return;
+            }
+            // Изменение уже зафиксировано, поэтому запрос не отклоняется: потерянное событие только логируется
+            dropped.incrementAndGet();
+            if (backpressure == FeedBackpressure.DROP) {
+                log.warn("Очередь ленты заполнена, событие отброшено: {}", feed);
+            } else {
+                log.error("Очередь ленты не освободилась за {}, событие потеряно: {}", offerTimeout, feed);
+            }
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    /* Метод ждет, пока будут записаны все события, принятые до вызова, но не дольше timeout.
+    Возвращает false, если время вышло. */
+    boolean flush(Duration timeout) {
+        long target = enqueued.get();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (progress) {
+            while (processed < target) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) {
+                    log.warn("Не дождались записи событий ленты: записано {} из {}", processed, target);
+                    return false;
+                }
+                try {
+                    progress.wait(Math.max(1, TimeUnit.NANOSECONDS.toMillis(left)));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /* Остановка: новые события больше не принимаются, поток записи дописывает очередь
+    и завершается. Возвращает false, если за timeout очередь записать не успели. */
+    boolean close(Duration timeout) {
+        closeLock.writeLock().lock();
+        try {
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        try {
+            consumer.join(Math.max(1, timeout.toMillis()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (consumer.isAlive()) {
+            log.error("Очередь ленты не записана за {}: осталось {} событий", timeout, queue.size());
+            return false;
+        }
+        return true;
+    }
+
+    FeedPipelineStatsDto getStats() {
+        synchronized (progress) {
+            return FeedPipelineStatsDto.builder()
+                    .async(true)
+                    .backpressure(backpressure.name())
+                    .queueDepth(queue.size())
+                    .queueCapacity(capacity)
+                    .enqueued(enqueued.get())
+                    .written(written)
+                    .failed(failed)
+                    .dropped(dropped.get())
+                    .batches(batches)
+                    .lastBatchSize(lastBatchSize)
+                    .lastFlushMillis(lastFlushNanos / 1e6)
+                    .maxFlushMillis(maxFlushNanos / 1e6)
+                    .averageFlushMillis(batches == 0 ? 0 : totalFlushNanos / 1e6 / batches)
+                    .build();
+        }
+    }
+
+    private boolean offerWithTimeout(Feed feed) {
+        try {
+            return queue.offer(feed, offerTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // Цикл потока записи: ждет первое событие, добирает все накопившееся до batchSize и пишет пакетом
+    private void run() {
+        List<Feed> batch = new ArrayList<>(batchSize);
+        while (true) {
+            Feed first;
+            try {
+                first = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                first = queue.poll(); // Прерывание не останавливает запись: поток завершает только close
+            }
+            if (first == null) {
+                if (isClosed()) {
+                    log.info("Очередь ленты записана, поток записи остановлен");
+                    return;
+                }
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, batchSize - 1);
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private boolean isClosed() {
+        closeLock.readLock().lock();
+        try {
+            return closed;
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    private void write(List<Feed> batch) {
+        for (int attempt = 1; ; attempt++) {
+            long start = System.nanoTime();
+            try {
+                int count = writer.write(batch);
+                record(batch.size(), count, System.nanoTime() - start);
+                return;
+            } catch (RuntimeException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    log.error("Не удалось записать {} событий ленты, события потеряны: {}", batch.size(),
+                            e.getMessage());
+                    record(batch.size(), 0, System.nanoTime() - start);
+                    return;
+                }
+                log.warn("Не удалось записать {} событий ленты, попытка {}: {}", batch.size(), attempt,
+                        e.getMessage());
+                try {
+                    Thread.sleep(RETRY_DELAY_MS * attempt);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private void record(int size, int count, long nanos) {
+        synchronized (progress) {
+            processed += size;
+            written += count;
+            failed += size - count;
+            batches++;
+            lastBatchSize = size;
+            lastFlushNanos = nanos;
+            maxFlushNanos = Math.max(maxFlushNanos, nanos);
+            totalFlushNanos += nanos;
+            progress.notifyAll();
+        }
+    }
+}
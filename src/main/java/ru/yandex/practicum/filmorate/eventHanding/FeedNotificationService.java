@@ -1,18 +1,102 @@
 package ru.yandex.practicum.filmorate.eventHanding;
 
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dto.stats.FeedPipelineStatsDto;
 import ru.yandex.practicum.filmorate.model.Feed;
 import ru.yandex.practicum.filmorate.storage.event.FeedDbStorage;
 
+import java.time.Duration;
+import java.util.List;
+
+/* Реализация слушателя: запись событий в таблицу events. По умолчанию событие только ставится в очередь,
+а в базу его пакетами пишет отдельный поток (FeedEventQueue), так что запросы лайков, друзей и отзывов
+не ждут вставки. Чтение ленты сначала дожидается записи уже принятых событий (flush). */
+@Slf4j
 @Component
-@RequiredArgsConstructor
 public class FeedNotificationService implements FeedListeners { //реализация слушателя
 
     private final FeedDbStorage feedDbStorage;
+    private final FeedEventQueue queue; // null, если асинхронная запись выключена
+    private final Duration flushTimeout;
+    private final Duration drainTimeout;
+
+    public FeedNotificationService(FeedDbStorage feedDbStorage,
+                                   @Value("${filmorate.feed.async.enabled:true}") boolean async,
+                                   @Value("${filmorate.feed.async.capacity:10000}") int capacity,
+                                   @Value("${filmorate.feed.async.batch-size:500}") int batchSize,
+                                   @Value("${filmorate.feed.async.backpressure:BLOCK}") FeedBackpressure backpressure,
+                                   @Value("${filmorate.feed.async.offer-timeout:PT1S}") Duration offerTimeout,
+                                   @Value("${filmorate.feed.async.flush-timeout:PT5S}") Duration flushTimeout,
+                                   @Value("${filmorate.feed.async.drain-timeout:PT30S}") Duration drainTimeout) {
+        this.feedDbStorage = feedDbStorage;
+        this.queue = async ? new FeedEventQueue(this::writeFeeds, capacity, batchSize, backpressure, offerTimeout)
+                : null;
+        this.flushTimeout = flushTimeout;
+        this.drainTimeout = drainTimeout;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (queue != null) {
+            queue.start();
+        }
+    }
 
     @Override
     public void feedAdded(Feed feed) { //обработка события - добавление записи в таблицу
-        feedDbStorage.createFeed(feed);
+        if (queue == null) {
+            feedDbStorage.createFeed(feed);
+        } else {
+            queue.add(feed);
+        }
+    }
+
+    // Метод ждет записи всех событий, принятых до вызова, чтобы лента их уже показывала
+    public void flush() {
+        if (queue != null) {
+            queue.flush(flushTimeout);
+        }
+    }
+
+    // Метрики записи: глубина очереди, число записанных и потерянных событий, время записи пакетов
+    public FeedPipelineStatsDto getStats() {
+        if (queue == null) {
+            return FeedPipelineStatsDto.builder()
+                    .async(false)
+                    .build();
+        }
+        return queue.getStats();
+    }
+
+    // При штатной остановке приложения очередь записывается в базу
+    @PreDestroy
+    public void close() {
+        if (queue != null) {
+            queue.close(drainTimeout);
+        }
+    }
+
+    /* Пакет пишется одной транзакцией. Если он нарушает ограничения базы (пользователь удален, пока
+    событие ждало записи), события пишутся по одному, а нарушающие ограничения пропускаются. */
+    private int writeFeeds(List<Feed> feeds) {
+        try {
+            return feedDbStorage.createFeeds(feeds);
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Пакет событий ленты нарушает ограничения базы, запись по одному: {}", e.getMessage());
+            int written = 0;
+            for (Feed feed : feeds) {
+                try {
+                    written += feedDbStorage.createFeeds(List.of(feed));
+                } catch (DataIntegrityViolationException skipped) {
+                    log.warn("Событие ленты пропущено: {}: {}", feed, skipped.getMessage());
+                }
+            }
+            return written;
+        }
     }
 }
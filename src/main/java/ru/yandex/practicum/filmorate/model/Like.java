@@ -4,6 +4,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NonNull;
 
+import java.time.Instant;
+
 @Data // Генерирует геттеры, сеттеры, методы equals, hashCode и toString
 @Builder // Позволяет использовать паттерн Builder для создания объектов класса
 public class Like {
@@ -11,4 +13,5 @@ public class Like {
     private Long filmId; // Идентификатор фильма, к которому относится лайк
     @NonNull // Аннотация указывает, что поле не может быть null
     private Long userId; // Идентификатор пользователя, который поставил лайк
+    private Instant createdAt; // Время лайка; null, если лайк еще не сохранен
 }
\ No newline at end of file
@@ -0,0 +1,236 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.like.LikeDbStorage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/* Долгоживущая модель slope-one. Строится один раз при старте приложения, а затем поддерживается
+инкрементально при добавлении и удалении лайков: каждое изменение стоит O(лайков пользователя).
+Прогнозы выполняются под блокировкой чтения с буферами на каждый вызов и могут идти параллельно,
+изменения модели - под блокировкой записи. Полное построение разбивается по пользователям
+и выполняется в ForkJoinPool: каждая часть считает свою частичную матрицу, которые затем сливаются. */
+@Slf4j
+@Component
+public class RecommendationModel {
+
+    private static final int LIKE_RATING = 1; // Оценка, которую означает лайк
+    private static final int TASKS_PER_THREAD = 4; // Запас задач на поток для выравнивания нагрузки
+
+    private final LikeDbStorage likeDbStorage;
+    private final int buildParallelism; // Количество потоков для построения модели
+
+    private final Map<Long, Map<Long, Integer>> data = new HashMap<>(); // Оценки пользователей
+    // Суммы разниц оценок и частоты совместных оценок пар фильмов
+    private SparseCooccurrenceMatrix matrix = new SparseCooccurrenceMatrix();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // parallelism <= 0 означает "по числу доступных ядер"
+    public RecommendationModel(LikeDbStorage likeDbStorage,
+                               @Value("${filmorate.recommendations.build-parallelism:0}") int parallelism) {
+        this.likeDbStorage = likeDbStorage;
+        this.buildParallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    }
+
+    // Метод строит модель по всем лайкам из базы данных
+    @PostConstruct
+    public void build() {
+        lock.writeLock().lock();
+        try {
+            data.clear();
+            // Лайки читаются потоком, промежуточный список всех лайков не создается
+            likeDbStorage.forEachLike((userId, filmId) -> data.computeIfAbsent(userId, k -> new HashMap<>())
+                    .put(filmId, LIKE_RATING));
+            computeDifferences();
+            log.info("Модель рекомендаций построена: {} пользователей, {} фильмов, {} пар фильмов",
+                    data.size(), matrix.rowCount(), matrix.cellCount());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Метод учитывает новый лайк пользователя
+    public void addLike(Long userId, Long filmId) {
+        lock.writeLock().lock();
+        try {
+            Map<Long, Integer> userRatings = data.computeIfAbsent(userId, k -> new HashMap<>());
+            if (userRatings.containsKey(filmId)) { // Повторный лайк модель не меняет
+                return;
+            }
+            userRatings.put(filmId, LIKE_RATING);
+            for (Map.Entry<Long, Integer> entry : userRatings.entrySet()) {
+                updatePair(filmId, LIKE_RATING, entry.getKey(), entry.getValue(), 1);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Метод убирает лайк пользователя из модели
+    public void removeLike(Long userId, Long filmId) {
+        lock.writeLock().lock();
+        try {
+            Map<Long, Integer> userRatings = data.get(userId);
+            if (userRatings == null || !userRatings.containsKey(filmId)) {
+                return;
+            }
+            int rating = userRatings.get(filmId);
+            for (Map.Entry<Long, Integer> entry : userRatings.entrySet()) {
+                updatePair(filmId, rating, entry.getKey(), entry.getValue(), -1);
+            }
+            userRatings.remove(filmId);
+            if (userRatings.isEmpty()) {
+                data.remove(userId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Метод убирает из модели все лайки удаленного пользователя
+    public void removeUser(Long userId) {
+        lock.writeLock().lock();
+        try {
+            Map<Long, Integer> userRatings = data.get(userId);
+            if (userRatings != null) {
+                new ArrayList<>(userRatings.keySet()).forEach(filmId -> removeLike(userId, filmId));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Метод убирает из модели все лайки удаленного фильма
+    public void removeFilm(Long filmId) {
+        lock.writeLock().lock();
+        try {
+            List<Long> users = data.entrySet().stream()
+                    .filter(entry -> entry.getValue().containsKey(filmId))
+                    .map(Map.Entry::getKey)
+                    .toList();
+            users.forEach(userId -> removeLike(userId, filmId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /* Метод прогнозирует оценки фильмов, которые пользователь еще не оценивал, по усредненным разницам оценок.
+    Возвращает пустую карту, если у пользователя нет лайков или похожих лайков у других пользователей. */
+    public Map<Long, Double> predictRatings(Long userId) {
+        lock.readLock().lock();
+        try {
+            Map<Long, Integer> userRatings = data.get(userId);
+            if (userRatings == null) { // Проверка наличия лайков у пользователя
+                return new HashMap<>();
+            }
+            Map<Long, Double> uPred = new HashMap<>();
+            Map<Long, Integer> uFreq = new HashMap<>();
+            for (Map.Entry<Long, Integer> entry : userRatings.entrySet()) {
+                int film = toIndex(entry.getKey());
+                int rating = entry.getValue();
+                matrix.forEachInRow(film, (film2, count, diffSum) -> {
+                    Long film2Id = (long) film2;
+                    // Проверяем, не оценивал ли пользователь уже этот фильм
+                    if (!userRatings.containsKey(film2Id)) {
+                        // Средняя разница оценок рассчитывается по текущим суммам и частотам
+                        uPred.merge(film2Id, (double) diffSum / count + rating, Double::sum);
+                        uFreq.merge(film2Id, count, Integer::sum);
+                    }
+                });
+            }
+            Map<Long, Double> results = new HashMap<>();
+            uPred.forEach((film, value) -> results.put(film, value / uFreq.get(film)));
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Метод вычисляет суммы разниц оценок и частоты совместных лайков для каждой пары фильмов.
+    private void computeDifferences() {
+        List<Map<Long, Integer>> users = new ArrayList<>(data.values());
+        if (buildParallelism == 1) { // Одна задача на весь диапазон: fork ушел бы в общий пул ForkJoinPool
+            matrix = new ComputeDifferencesTask(users, 0, users.size(), users.size()).compute();
+            return;
+        }
+        int threshold = Math.max(1, users.size() / (buildParallelism * TASKS_PER_THREAD));
+        ForkJoinPool pool = new ForkJoinPool(buildParallelism);
+        try {
+            matrix = pool.invoke(new ComputeDifferencesTask(users, 0, users.size(), threshold));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // Метод изменяет вклад пары фильмов (в обе стороны) на величину sign
+    private void updatePair(Long film1, int rating1, Long film2, int rating2, int sign) {
+        matrix.add(toIndex(film1), toIndex(film2), sign * (rating1 - rating2), sign);
+        if (!film1.equals(film2)) {
+            matrix.add(toIndex(film2), toIndex(film1), sign * (rating2 - rating1), sign);
+        }
+    }
+
+    // id фильмов в базе имеют тип INTEGER, поэтому матрица индексируется int
+    private static int toIndex(Long filmId) {
+        return Math.toIntExact(filmId);
+    }
+
+    // Задача построения частичной матрицы по диапазону пользователей [from, to)
+    private static final class ComputeDifferencesTask extends RecursiveTask<SparseCooccurrenceMatrix> {
+        private final List<Map<Long, Integer>> users;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        private ComputeDifferencesTask(List<Map<Long, Integer>> users, int from, int to, int threshold) {
+            this.users = users;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected SparseCooccurrenceMatrix compute() {
+            if (to - from <= threshold) {
+                return computeDirectly();
+            }
+            int middle = (from + to) >>> 1;
+            ComputeDifferencesTask left = new ComputeDifferencesTask(users, from, middle, threshold);
+            left.fork();
+            SparseCooccurrenceMatrix right = new ComputeDifferencesTask(users, middle, to, threshold).compute();
+            SparseCooccurrenceMatrix result = left.join();
+            // Меньшую матрицу вливаем в большую, чтобы копировать меньше ячеек
+            if (result.cellCount() < right.cellCount()) {
+                right.merge(result);
+                return right;
+            }
+            result.merge(right);
+            return result;
+        }
+
+        private SparseCooccurrenceMatrix computeDirectly() {
+            SparseCooccurrenceMatrix partial = new SparseCooccurrenceMatrix();
+            for (int i = from; i < to; i++) {
+                Map<Long, Integer> userRatings = users.get(i);
+                for (Map.Entry<Long, Integer> entry1 : userRatings.entrySet()) {
+                    int film1 = toIndex(entry1.getKey());
+                    int value1 = entry1.getValue();
+                    for (Map.Entry<Long, Integer> entry2 : userRatings.entrySet()) {
+                        partial.add(film1, toIndex(entry2.getKey()), value1 - entry2.getValue(), 1);
+                    }
+                }
+            }
+            return partial;
+        }
+    }
+}
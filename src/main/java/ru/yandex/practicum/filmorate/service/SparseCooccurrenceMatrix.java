@@ -0,0 +1,207 @@
+package ru.yandex.practicum.filmorate.service;
+
+import java.util.Arrays;
+
+/* Разреженная матрица совместных оценок фильмов на примитивах. Строки хранятся в массиве по id фильма,
+каждая строка - хеш-таблица с открытой адресацией: int id второго фильма -> int частота и float сумма разниц.
+Класс не потокобезопасен, синхронизацию обеспечивает владелец. */
+public class SparseCooccurrenceMatrix {
+
+    private static final int EMPTY = 0; // id фильмов начинаются с 1, ноль обозначает свободную ячейку
+    private static final int INITIAL_ROWS = 16;
+    private static final int INITIAL_ROW_CAPACITY = 8; // Степень двойки
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private Row[] rows = new Row[INITIAL_ROWS];
+    private int rowCount;
+    private long cellCount;
+
+    // Функциональный интерфейс для обхода ячеек строки
+    @FunctionalInterface
+    public interface CellConsumer {
+        void accept(int column, int count, float diffSum);
+    }
+
+    // Метод изменяет ячейку на заданные величины; ячейка с нулевой частотой удаляется
+    public void add(int row, int column, float diffDelta, int countDelta) {
+        checkId(row);
+        checkId(column);
+        if (row >= rows.length) {
+            rows = Arrays.copyOf(rows, Math.max(rows.length * 2, row + 1));
+        }
+        Row r = rows[row];
+        if (r == null) {
+            if (countDelta <= 0) {
+                return;
+            }
+            r = new Row();
+            rows[row] = r;
+            rowCount++;
+        }
+        int sizeBefore = r.size;
+        r.add(column, diffDelta, countDelta);
+        cellCount += r.size - sizeBefore;
+        if (r.size == 0) {
+            rows[row] = null;
+            rowCount--;
+        }
+    }
+
+    // Метод возвращает частоту совместных оценок пары фильмов
+    public int count(int row, int column) {
+        Row r = row > 0 && row < rows.length ? rows[row] : null;
+        if (r == null) {
+            return 0;
+        }
+        int slot = r.find(column);
+        return slot < 0 ? 0 : r.counts[slot];
+    }
+
+    // Метод возвращает сумму разниц оценок пары фильмов
+    public float diffSum(int row, int column) {
+        Row r = row > 0 && row < rows.length ? rows[row] : null;
+        if (r == null) {
+            return 0f;
+        }
+        int slot = r.find(column);
+        return slot < 0 ? 0f : r.sums[slot];
+    }
+
+    // Метод обходит все непустые ячейки строки
+    public void forEachInRow(int row, CellConsumer consumer) {
+        Row r = row > 0 && row < rows.length ? rows[row] : null;
+        if (r == null) {
+            return;
+        }
+        for (int i = 0; i < r.keys.length; i++) {
+            if (r.keys[i] != EMPTY) {
+                consumer.accept(r.keys[i], r.counts[i], r.sums[i]);
+            }
+        }
+    }
+
+    // Метод прибавляет к матрице все ячейки другой матрицы (используется при слиянии частичных матриц)
+    public void merge(SparseCooccurrenceMatrix other) {
+        for (int row = 1; row < other.rows.length; row++) {
+            int r = row;
+            other.forEachInRow(row, (column, count, diffSum) -> add(r, column, diffSum, count));
+        }
+    }
+
+    // Количество непустых строк
+    public int rowCount() {
+        return rowCount;
+    }
+
+    // Количество непустых ячеек
+    public long cellCount() {
+        return cellCount;
+    }
+
+    // Метод очищает матрицу
+    public void clear() {
+        rows = new Row[INITIAL_ROWS];
+        rowCount = 0;
+        cellCount = 0;
+    }
+
+    private static void checkId(int id) {
+        if (id <= EMPTY) {
+            throw new IllegalArgumentException("Идентификатор фильма должен быть положительным: " + id);
+        }
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9; // Перемешивание Фибоначчи
+        return h ^ (h >>> 16);
+    }
+
+    // Строка матрицы: хеш-таблица с линейным пробированием
+    private static final class Row {
+        private int[] keys = new int[INITIAL_ROW_CAPACITY];
+        private int[] counts = new int[INITIAL_ROW_CAPACITY];
+        private float[] sums = new float[INITIAL_ROW_CAPACITY];
+        private int size;
+
+        private int find(int key) {
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (keys[i] != EMPTY) {
+                if (keys[i] == key) {
+                    return i;
+                }
+                i = (i + 1) & mask;
+            }
+            return -1;
+        }
+
+        private void add(int key, float diffDelta, int countDelta) {
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (keys[i] != EMPTY) {
+                if (keys[i] == key) {
+                    counts[i] += countDelta;
+                    sums[i] += diffDelta;
+                    if (counts[i] <= 0) {
+                        removeAt(i);
+                    }
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            if (countDelta <= 0) { // Нечего уменьшать
+                return;
+            }
+            keys[i] = key;
+            counts[i] = countDelta;
+            sums[i] = diffDelta;
+            size++;
+            if (size > keys.length * LOAD_FACTOR) {
+                resize(keys.length * 2);
+            }
+        }
+
+        // Удаление со сдвигом назад, чтобы не оставлять "надгробий" в цепочках пробирования
+        private void removeAt(int slot) {
+            int mask = keys.length - 1;
+            int gap = slot;
+            int i = (slot + 1) & mask;
+            while (keys[i] != EMPTY) {
+                int home = hash(keys[i]) & mask;
+                // Элемент можно сдвинуть в "дыру", если его исходная позиция не лежит между дырой и ним
+                if (((i - home) & mask) >= ((i - gap) & mask)) {
+                    keys[gap] = keys[i];
+                    counts[gap] = counts[i];
+                    sums[gap] = sums[i];
+                    gap = i;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[gap] = EMPTY;
+            counts[gap] = 0;
+            sums[gap] = 0f;
+            size--;
+        }
+
+        private void resize(int capacity) {
+            int[] oldKeys = keys;
+            int[] oldCounts = counts;
+            float[] oldSums = sums;
+            keys = new int[capacity];
+            counts = new int[capacity];
+            sums = new float[capacity];
+            int mask = capacity - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] != EMPTY) {
+                    int i = hash(oldKeys[j]) & mask;
+                    while (keys[i] != EMPTY) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = oldKeys[j];
+                    counts[i] = oldCounts[j];
+                    sums[i] = oldSums[j];
+                }
+            }
+        }
+    }
+}
@@ -3,6 +3,9 @@ package ru.yandex.practicum.filmorate.service.feed;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.dto.feed.FeedDto;
+import ru.yandex.practicum.filmorate.dto.page.PageDto;
+import ru.yandex.practicum.filmorate.eventHanding.FeedNotificationService;
+import ru.yandex.practicum.filmorate.exception.BadRequestException;
 import ru.yandex.practicum.filmorate.mapper.FeedMapper;
 import ru.yandex.practicum.filmorate.service.user.UserService;
 import ru.yandex.practicum.filmorate.storage.event.FeedDbStorage;
@@ -14,11 +17,33 @@ import java.util.List;
 public class FeedService {
     private final FeedDbStorage feedDbStorage;
     private final UserService userService;
+    private final FeedNotificationService feedNotificationService;
 
     public List<FeedDto> getUserFeed(Long id) {
         userService.findUserById(id);
+        feedNotificationService.flush(); // События пишутся асинхронно: дожидаемся уже принятых
         return feedDbStorage.getListFeedForId(id).stream()
                 .map(FeedMapper::mapToFeedDto)
                 .toList();
     }
+
+    /* Метод возвращает страницу ленты: последние limit событий с id меньше beforeEventId
+    в порядке возрастания id. Курсор следующей страницы - id самого раннего события страницы. */
+    public PageDto<FeedDto> getUserFeedPage(Long id, Long beforeEventId, Integer limit) {
+        int pageSize = limit == null ? PageDto.DEFAULT_LIMIT : limit;
+        if ((beforeEventId != null && beforeEventId <= 0) || pageSize <= 0 || pageSize > PageDto.MAX_LIMIT) {
+            throw new BadRequestException("Некорректные параметры страницы: beforeEventId = " + beforeEventId +
+                    ", limit = " + limit + " (допустимо от 1 до " + PageDto.MAX_LIMIT + ")");
+        }
+        userService.findUserById(id);
+        feedNotificationService.flush();
+        long cursor = beforeEventId == null ? Long.MAX_VALUE : beforeEventId;
+        // Читаем на одно событие больше, чтобы узнать, есть ли более ранние
+        List<FeedDto> newestFirst = feedDbStorage.getFeedBefore(id, cursor, pageSize + 1).stream()
+                .map(FeedMapper::mapToFeedDto)
+                .toList();
+        PageDto<FeedDto> page = PageDto.of(newestFirst, pageSize, FeedDto::getEventId);
+        page.setItems(page.getItems().reversed());
+        return page;
+    }
 }
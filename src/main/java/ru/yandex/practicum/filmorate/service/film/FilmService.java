@@ -5,12 +5,15 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.dto.film.FilmDto;
 import ru.yandex.practicum.filmorate.dto.film.UpdateFilmRequest;
+import ru.yandex.practicum.filmorate.dto.page.PageDto;
 import ru.yandex.practicum.filmorate.eventHanding.FeedEventSource;
 import ru.yandex.practicum.filmorate.exception.BadRequestException;
 import ru.yandex.practicum.filmorate.exception.InternalServerException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.mapper.FilmMapper;
 import ru.yandex.practicum.filmorate.model.*;
+import ru.yandex.practicum.filmorate.service.RecommendationModel;
+import ru.yandex.practicum.filmorate.service.stats.FilmActivityStats;
 import ru.yandex.practicum.filmorate.storage.director.DirectorDBStorage;
 import ru.yandex.practicum.filmorate.storage.director.DirectorFilmDBStorage;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
@@ -20,15 +23,25 @@ import ru.yandex.practicum.filmorate.storage.like.LikeDbStorage;
 import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service // Аннотация указывает, что данный класс является сервисом и может быть использован в контексте Spring
 public class FilmService {
 
+    private static final int EXPORT_CHUNK_SIZE = 500; // Фильмов в одной порции при выгрузке каталога
+
     private final FilmStorage filmStorage; // Хранение ссылки на объект FilmStorage для работы с данными о фильмах
     private final UserStorage userStorage; // Хранилище пользователей для проверки существования пользователей
     private final LikeDbStorage likeDbStorage; // Хранилище для работы с лайками
@@ -38,6 +51,11 @@ public class FilmService {
     private final MpaDbStorage mpaDbStorage;
     private final GenreDbStorage genreDbStorage;
     private final FeedEventSource feedEventSource;
+    private final RecommendationModel recommendationModel; // Модель рекомендаций, обновляемая при изменении лайков
+    private final PopularityIndex popularityIndex; // Индекс популярности для /films/popular
+    private final TrendingIndex trendingIndex; // Рейтинг с затуханием по времени для /films/trending
+    private final LikedFilmsIndex likedFilmsIndex; // Лайкнутые фильмы пользователей для /films/common
+    private final FilmActivityStats filmActivityStats; // Статистика лайков для дашбордов
 
     // Конструктор, принимающий FilmStorage, UserStorage и другие хранилища в качестве параметров
     public FilmService(@Qualifier("filmDbStorage") FilmStorage filmStorage,
@@ -47,7 +65,12 @@ public class FilmService {
                        DirectorFilmDBStorage directorFilmDBStorage,
                        MpaDbStorage mpaDbStorage,
                        GenreDbStorage genreDbStorage,
-                       FeedEventSource feedEventSource) {
+                       FeedEventSource feedEventSource,
+                       RecommendationModel recommendationModel,
+                       PopularityIndex popularityIndex,
+                       TrendingIndex trendingIndex,
+                       LikedFilmsIndex likedFilmsIndex,
+                       FilmActivityStats filmActivityStats) {
         this.filmStorage = filmStorage;
         this.userStorage = userStorage;
         this.likeDbStorage = likeDbStorage;
@@ -57,12 +80,49 @@ public class FilmService {
         this.mpaDbStorage = mpaDbStorage;
         this.genreDbStorage = genreDbStorage;
         this.feedEventSource = feedEventSource;
+        this.recommendationModel = recommendationModel;
+        this.popularityIndex = popularityIndex;
+        this.trendingIndex = trendingIndex;
+        this.likedFilmsIndex = likedFilmsIndex;
+        this.filmActivityStats = filmActivityStats;
     }
 
     public List<FilmDto> getFilms() {
         return listFilmToDto(filmStorage.getFilms());// Возвращаем список всех фильмов
     }
 
+    // Метод возвращает страницу фильмов, следующих за фильмом с id afterId
+    public PageDto<FilmDto> getFilmsPage(Long afterId, Integer limit) {
+        long cursor = afterId == null ? 0 : afterId;
+        int pageSize = limit == null ? PageDto.DEFAULT_LIMIT : limit;
+        if (cursor < 0 || pageSize <= 0 || pageSize > PageDto.MAX_LIMIT) {
+            throw new BadRequestException("Некорректные параметры страницы: afterId = " + afterId +
+                    ", limit = " + limit + " (допустимо от 1 до " + PageDto.MAX_LIMIT + ")");
+        }
+        // Читаем на одну строку больше, чтобы узнать, есть ли следующая страница
+        List<Film> films = filmStorage.getFilmsAfter(cursor, pageSize + 1);
+        return PageDto.of(listFilmToDto(films), pageSize, FilmDto::getId);
+    }
+
+
+    /* Метод передает в consumer все фильмы каталога с жанрами и режиссерами по возрастанию id.
+    Фильмы читаются порциями по курсору, поэтому в памяти одновременно находится только одна порция.
+    Порции читаются разными запросами: фильмы, измененные во время выгрузки, могут попасть в нее
+    как в старом, так и в новом виде. */
+    public void exportFilms(Consumer<FilmDto> consumer) {
+        long cursor = 0;
+        int exported = 0;
+        List<Film> films;
+        do {
+            films = filmStorage.getFilmsAfter(cursor, EXPORT_CHUNK_SIZE);
+            listFilmToDto(films).forEach(consumer);
+            exported += films.size();
+            if (!films.isEmpty()) {
+                cursor = films.getLast().getId();
+            }
+        } while (films.size() == EXPORT_CHUNK_SIZE);
+        log.info("Выгружено {} фильмов", exported);
+    }
 
     // Метод для создания нового фильма
     public FilmDto createFilm(Film film) {
@@ -72,6 +132,7 @@ public class FilmService {
         addGenresToGenresFilm(newFilm.getId(), newFilm.getGenres()); // Добавляем жанры фильма в таблицу
         FilmDto filmDto = FilmMapper.toFilmDto(newFilm);
         setNameGenre(filmDto); //добавляем имена к жанрам, удаляем двойные жанры
+        putToPopularityIndex(filmDto);
         return filmDto; // Возвращаем созданный фильм
     }
 
@@ -88,6 +149,7 @@ public class FilmService {
         updateDirector(updateFilm); //обновляем режиссеров
         FilmDto filmDto = FilmMapper.toFilmDto(updateFilm);
         updateGenres(filmDto); //обновление жанров
+        putToPopularityIndex(filmDto); // Год и жанры фильма могли измениться
         return filmDto; // Возвращаем обновленный фильм
     }
 
@@ -95,15 +157,26 @@ public class FilmService {
     public void deleteFilm(Long filmId) {
         getFilmById(filmId); // Проверяем есть ли фильм с таким id
         filmStorage.deleteFilm(filmId); // Удаляем фильм
+        recommendationModel.removeFilm(filmId); // Лайки фильма удаляются каскадно, убираем их и из модели
+        popularityIndex.removeFilm(filmId);
+        trendingIndex.removeFilm(filmId);
+        likedFilmsIndex.removeFilm(filmId);
     }
 
     // Метод для добавления лайка к фильму от пользователя
     public FilmDto addLike(Long filmId, Long userId) {
         validateUserExists(userId);
         Film film = getFilmById(filmId);
-        Like like = likeDbStorage.addLikeToFilm(filmId, userId); // Добавляем лайк к фильму
+        Instant now = Instant.now(); // Это же время пишется в created_at, по нему лайк потом убирается из трендов
+        if (likeDbStorage.addLikeToFilm(filmId, userId, now)) { // Добавляем лайк к фильму
+            popularityIndex.addLike(filmId); // Повторный лайк популярность не меняет
+            trendingIndex.addLike(filmId, now);
+            filmActivityStats.recordLike(filmId);
+        }
+        recommendationModel.addLike(userId, filmId); // Обновляем модель рекомендаций
+        likedFilmsIndex.addLike(userId, filmId);
         FilmDto response = FilmMapper.toFilmDto(film); // Преобразуем фильм в DTO-объект для ответа
-        response.setLikes(Set.of(like.getUserId()));
+        response.setLikes(Set.of(userId));
         // Устанавливаем набор лайков в ответе
 
         feedEventSource.notifyFeedListeners(
@@ -119,7 +192,11 @@ public class FilmService {
     public FilmDto deleteLike(Long filmId, Long userId) {
         validateUserExists(userId);
         Film film = getFilmById(filmId);
-        likeDbStorage.deleteLike(filmId, userId); // Удаляем лайк от пользователя к фильму
+        Like like = likeDbStorage.deleteLike(filmId, userId); // Удаляем лайк от пользователя к фильму
+        recommendationModel.removeLike(userId, filmId); // Обновляем модель рекомендаций
+        likedFilmsIndex.removeLike(userId, filmId);
+        popularityIndex.removeLike(filmId);
+        trendingIndex.removeLike(filmId, like.getCreatedAt());
 
         feedEventSource.notifyFeedListeners(
                 userId,
@@ -130,11 +207,35 @@ public class FilmService {
         return FilmMapper.toFilmDto(film); // Возвращаем DTO-объект фильма после удаления лайка
     }
 
+    /* Метод возвращает самые популярные фильмы по количеству лайков с учетом жанра и года.
+    Топ берется из индекса популярности в памяти; пока индекс строится, запрос идет в базу. */
     public List<FilmDto> getMostPopularByNumberOfLikes(Long count, Long genreId, Integer year) {
-        // Возвращаем список самых популярных фильмов по количеству лайков с учетом жанра и года
+        if (count != null && count > 0) {
+            int limit = (int) Math.min(count, Integer.MAX_VALUE);
+            Optional<List<Long>> top = popularityIndex.getTop(limit, genreId, year);
+            if (top.isPresent()) {
+                return getFilmsByIds(top.get());
+            }
+        }
         return listFilmToDto(filmStorage.getMostPopularByNumberOfLikes(count, genreId, year));
     }
 
+    // Метод возвращает фильмы с наибольшим весом лайков за окно с затуханием по времени
+    public List<FilmDto> getTrendingFilms(Integer count) {
+        if (count == null || count <= 0) {
+            throw new BadRequestException("Параметр count должен быть положительным: " + count);
+        }
+        return getFilmsByIds(trendingIndex.getTop(count));
+    }
+
+    // Метод передает в индекс популярности год и жанры фильма
+    private void putToPopularityIndex(FilmDto film) {
+        List<Long> genreIds = film.getGenres() == null ? List.of() : film.getGenres().stream()
+                .map(Genre::getId)
+                .toList();
+        popularityIndex.putFilm(film.getId(), film.getReleaseDate(), genreIds);
+    }
+
     // Метод для получения фильма с его жанрами по идентификатору
     public FilmDto getWithGenre(Long id) {
         // Получаем фильм по ID, и преобразовываем в FilmDto
@@ -151,6 +252,8 @@ public class FilmService {
         return listFilmToDto(filmStorage.search(query, by));
     }
 
+    /* Метод возвращает фильмы, которые лайкнули оба пользователя, от самых популярных к менее популярным.
+    Общие фильмы - пересечение множеств из индекса в памяти, затем фильмы загружаются пакетно. */
     public List<FilmDto> commonFilms(Long userId, Long friendId) {
         if (userStorage.getUserById(userId).isEmpty()) {
             throw new NotFoundException("Не найден пользователь с id: " + userId);
@@ -158,15 +261,24 @@ public class FilmService {
         if (userStorage.getUserById(friendId).isEmpty()) {
             throw new NotFoundException("Не найден пользователь с id: " + friendId);
         }
-        return listFilmToDto(filmStorage.commonFilms(userId, friendId));
+        List<Long> filmIds = likedFilmsIndex.getCommonFilmIds(userId, friendId); // id по возрастанию
+        if (filmIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Long> likes = filmStorage.getLikeCounts(filmIds);
+        // Сортировка устойчивая, поэтому при равном числе лайков фильмы остаются по возрастанию id
+        filmIds.sort(Comparator.comparing((Long filmId) -> likes.getOrDefault(filmId, 0L)).reversed());
+        return getFilmsByIds(filmIds);
     }
 
     // Метод для добавления жанров в таблицу с жанрами фильма
     private void addGenresToGenresFilm(Long filmId, List<Genre> genresList) {
         if (genresList != null) {
-            // Если жанры существуют, добавляем их в хранилище связей жанров и фильмов
-            Set<Genre> uniqueGenres = new LinkedHashSet<>(genresList);
-            uniqueGenres.forEach(genre -> genresFilmDbStorage.addGenreToFilm(filmId, genre.getId()));
+            // Если жанры существуют, добавляем их в хранилище связей жанров и фильмов одним пакетом
+            Set<Long> uniqueGenres = genresList.stream()
+                    .map(Genre::getId)
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+            genresFilmDbStorage.addGenresToFilm(filmId, uniqueGenres);
         }
     }
 
@@ -181,6 +293,20 @@ public class FilmService {
                 .orElseThrow(() -> new NotFoundException("Фильм с id: " + filmId + " не найден"));
     }
 
+    /* Метод возвращает фильмы с жанрами и режиссерами по списку id в порядке этого списка.
+    Отсутствующие в базе фильмы пропускаются. */
+    public List<FilmDto> getFilmsByIds(List<Long> filmIds) {
+        if (filmIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Film> films = filmStorage.getFilmsByIds(filmIds).stream()
+                .collect(Collectors.toMap(Film::getId, Function.identity()));
+        return listFilmToDto(filmIds.stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .toList());
+    }
+
     // Метод для добавления жанров к фильму
     public FilmDto addGenresToFilmDto(FilmDto filmDto) {
         List<Genre> filmGenresList = genresFilmDbStorage.getGenresByFilmId(filmDto.getId()).stream()
@@ -265,12 +391,24 @@ public class FilmService {
         }
     }
 
-    //Метод переформатирования списка фильмов в список filmDto
+    /* Метод переформатирования списка фильмов в список filmDto. Жанры и режиссеры загружаются
+    для всего списка двумя запросами и раскладываются по фильмам в памяти, порядок списка сохраняется. */
     public List<FilmDto> listFilmToDto(List<Film> list) {
+        if (list.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Set<Long> filmIds = list.stream()
+                .map(Film::getId)
+                .collect(Collectors.toSet());
+        Map<Long, List<Genre>> genres = genresFilmDbStorage.getGenresByFilmIds(filmIds);
+        Map<Long, List<Director>> directors = directorDBStorage.getDirectorsByFilmIds(filmIds);
         return list.stream()
-                .map(this::addDirectorsToFilm)
-                .map(FilmMapper::toFilmDto)
-                .map(this::addGenresToFilmDto)
+                .map(film -> {
+                    film.setDirectors(directors.getOrDefault(film.getId(), new ArrayList<>()));
+                    FilmDto filmDto = FilmMapper.toFilmDto(film);
+                    filmDto.setGenres(genres.getOrDefault(film.getId(), new ArrayList<>()));
+                    return filmDto;
+                })
                 .toList();
     }
-}
\ No newline at end of file
+}
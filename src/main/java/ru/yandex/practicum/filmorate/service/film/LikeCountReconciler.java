@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.service.film;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.like.LikeDbStorage;
+
+/* Периодическая сверка счетчиков FILMS.like_count с таблицей LIKES. Счетчики поддерживаются
+в транзакциях изменения лайков, сверка страхует от правок базы в обход приложения.
+Первый запуск - сразу после старта: так заполняются счетчики в базах, созданных до их появления.
+После сверки по исправленным счетчикам перестраивается индекс популярности. */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LikeCountReconciler {
+
+    private final LikeDbStorage likeDbStorage;
+    private final PopularityIndex popularityIndex;
+
+    @Scheduled(fixedDelayString = "${filmorate.likes.reconcile-interval:PT1H}")
+    public void reconcile() {
+        int fixed = likeDbStorage.reconcileLikeCounts();
+        log.info("Сверка счетчиков лайков завершена, исправлено фильмов: {}", fixed);
+        popularityIndex.rebuild();
+    }
+}
@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.service.film;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.like.LikeDbStorage;
+
+/* Периодический сброс буфера отложенной записи лайков. Интервал сброса - верхняя граница того,
+сколько принятых лайков может потеряться при аварийной остановке и насколько FILMS.like_count
+отстает от ответов API. Работает, только если отложенная запись включена. */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "filmorate.likes.write-behind.enabled", havingValue = "true")
+public class LikeWriteBehindFlusher {
+
+    private final LikeDbStorage likeDbStorage;
+
+    @Scheduled(fixedDelayString = "${filmorate.likes.write-behind.flush-interval:PT0.2S}")
+    public void flush() {
+        try {
+            likeDbStorage.flushPendingLikes();
+        } catch (DataAccessException e) {
+            // Операции остаются в буфере и пишутся при следующем сбросе
+            log.error("Не удалось записать буфер лайков: {}", e.getMessage());
+        }
+    }
+}
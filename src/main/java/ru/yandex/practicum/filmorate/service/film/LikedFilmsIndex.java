@@ -0,0 +1,110 @@
+package ru.yandex.practicum.filmorate.service.film;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.like.LikeDbStorage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/* Лайкнутые фильмы каждого пользователя в виде сжатых множеств id (RoaringBitmap) для /films/common.
+Общие фильмы двух пользователей - пересечение их множеств, которое стоит O(число контейнеров + общие
+элементы) вместо соединения таблицы LIKES самой с собой. Индекс строится при старте по всем лайкам
+и обновляется вместе с моделью рекомендаций при каждом лайке, отмене лайка и удалении. */
+@Slf4j
+@Component
+public class LikedFilmsIndex {
+
+    private final LikeDbStorage likeDbStorage;
+
+    private final Map<Long, RoaringBitmap> likedFilms = new HashMap<>(); // id пользователя -> id его фильмов
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public LikedFilmsIndex(LikeDbStorage likeDbStorage) {
+        this.likeDbStorage = likeDbStorage;
+    }
+
+    // Метод строит индекс по всем лайкам из базы данных
+    @PostConstruct
+    public void build() {
+        lock.writeLock().lock();
+        try {
+            likedFilms.clear();
+            likeDbStorage.forEachLike((userId, filmId) -> likedFilms.computeIfAbsent(userId, k -> new RoaringBitmap())
+                    .add(filmId));
+            long bytes = likedFilms.values().stream()
+                    .mapToLong(RoaringBitmap::memoryBytes)
+                    .sum();
+            log.info("Индекс лайкнутых фильмов построен: {} пользователей, около {} КБ", likedFilms.size(),
+                    bytes / 1024);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Метод возвращает id фильмов, которые лайкнули оба пользователя, по возрастанию
+    public List<Long> getCommonFilmIds(Long userId, Long otherUserId) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap first = likedFilms.get(userId);
+            RoaringBitmap second = likedFilms.get(otherUserId);
+            if (first == null || second == null) {
+                return new ArrayList<>();
+            }
+            RoaringBitmap common = first.and(second);
+            List<Long> filmIds = new ArrayList<>((int) common.cardinality());
+            common.forEach(filmIds::add);
+            return filmIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Метод учитывает новый лайк пользователя
+    public void addLike(Long userId, Long filmId) {
+        lock.writeLock().lock();
+        try {
+            likedFilms.computeIfAbsent(userId, k -> new RoaringBitmap()).add(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Метод учитывает удаление лайка пользователя
+    public void removeLike(Long userId, Long filmId) {
+        lock.writeLock().lock();
+        try {
+            RoaringBitmap films = likedFilms.get(userId);
+            if (films != null && films.remove(filmId) && films.isEmpty()) {
+                likedFilms.remove(userId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Метод убирает лайки удаленного пользователя
+    public void removeUser(Long userId) {
+        lock.writeLock().lock();
+        try {
+            likedFilms.remove(userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Метод убирает удаленный фильм из множеств всех пользователей
+    public void removeFilm(Long filmId) {
+        lock.writeLock().lock();
+        try {
+            likedFilms.values().removeIf(films -> films.remove(filmId) && films.isEmpty());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package ru.yandex.practicum.filmorate.service.film;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.genres.GenresFilmDbStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/* Индекс популярности фильмов в памяти для /films/popular. Фильмы хранятся в упорядоченных множествах
+(по убыванию лайков, при равенстве - по возрастанию id) в четырех разрезах: все фильмы, по жанру,
+по году выхода и по паре жанр-год, поэтому топ-N читается с начала нужного множества за O(N).
+Изменение лайков или жанров фильма переставляет его во всех его множествах за O(число жанров * log n).
+Пока индекс не построен, getTop возвращает пустой Optional, и вызывающий код идет в базу.
+Перестроение идет без блокировки читателей: изменения фильмов, пришедшие во время чтения базы,
+записываются в журнал и применяются к новому индексу перед подменой. Для лайков журналируются только
+id фильмов: лайк, записанный в базу до чтения снимка, но дошедший до индекса позже, уже есть в снимке,
+поэтому после подмены счетчики этих фильмов перечитываются из базы целиком, а не сдвигаются на +-1. */
+@Slf4j
+@Component
+public class PopularityIndex {
+
+    private static final Comparator<FilmRank> MOST_LIKED_FIRST = Comparator.comparingLong(FilmRank::likes)
+            .reversed()
+            .thenComparingLong(FilmRank::filmId);
+
+    private final FilmStorage filmStorage;
+    private final GenresFilmDbStorage genresFilmDbStorage;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Partitions partitions; // null, пока индекс не построен
+    private List<Consumer<Partitions>> journal; // Не null во время чтения базы при перестроении
+    private Set<Long> changedLikes; // Фильмы, чьи лайки менялись во время перестроения; иначе null
+
+    public PopularityIndex(@Qualifier("filmDbStorage") FilmStorage filmStorage,
+                           GenresFilmDbStorage genresFilmDbStorage) {
+        this.filmStorage = filmStorage;
+        this.genresFilmDbStorage = genresFilmDbStorage;
+    }
+
+    // Метод возвращает id не более count самых популярных фильмов или пустой Optional, если индекс не готов
+    public Optional<List<Long>> getTop(int count, Long genreId, Integer year) {
+        lock.readLock().lock();
+        try {
+            if (partitions == null) {
+                return Optional.empty();
+            }
+            List<Long> top = new ArrayList<>(Math.min(count, partitions.films.size()));
+            for (FilmRank rank : partitions.select(genreId, year)) {
+                if (top.size() == count) {
+                    break;
+                }
+                top.add(rank.filmId());
+            }
+            return Optional.of(top);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Метод учитывает новый лайк фильма
+    public void addLike(Long filmId) {
+        changeLikes(filmId, 1);
+    }
+
+    // Метод учитывает удаление лайка фильма
+    public void removeLike(Long filmId) {
+        changeLikes(filmId, -1);
+    }
+
+    // Метод добавляет фильм или обновляет его год и жанры, сохраняя число лайков
+    public void putFilm(Long filmId, LocalDate releaseDate, Collection<Long> genreIds) {
+        Integer year = releaseDate == null ? null : releaseDate.getYear();
+        Set<Long> genres = Set.copyOf(genreIds);
+        apply(partitions -> partitions.putFilm(filmId, year, genres));
+    }
+
+    // Метод убирает удаленный фильм из индекса
+    public void removeFilm(Long filmId) {
+        apply(partitions -> partitions.remove(filmId));
+    }
+
+    // Метод перечитывает из базы число лайков фильмов, изменившееся в обход addLike и removeLike
+    public void refreshLikes(Collection<Long> filmIds) {
+        if (filmIds.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> counts = filmStorage.getLikeCounts(filmIds);
+        apply(partitions -> counts.forEach(partitions::setLikes));
+    }
+
+    /* Метод строит индекс заново по базе данных и подменяет им текущий; перестроения не идут параллельно.
+    После подмены счетчики фильмов, лайки которых менялись во время перестроения, перечитываются из базы,
+    пока за время очередного чтения не перестанут приходить новые изменения. */
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            journal = new ArrayList<>();
+            changedLikes = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            Partitions fresh = load();
+            Set<Long> filmIds;
+            lock.writeLock().lock();
+            try {
+                journal.forEach(change -> change.accept(fresh));
+                partitions = fresh;
+                log.info("Индекс популярности построен: {} фильмов, применено изменений из журнала: {}, "
+                        + "фильмов с изменившимися лайками: {}", fresh.films.size(), journal.size(),
+                        changedLikes.size());
+                journal = null;
+                filmIds = takeChangedLikes();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            while (!filmIds.isEmpty()) {
+                Map<Long, Long> counts = filmStorage.getLikeCounts(filmIds);
+                lock.writeLock().lock();
+                try {
+                    counts.forEach(partitions::setLikes);
+                    filmIds = takeChangedLikes();
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        } finally {
+            lock.writeLock().lock();
+            try {
+                journal = null; // Если чтение базы не удалось, текущий индекс остается прежним
+                changedLikes = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    // Накопленные id фильмов; журнал лайков закрывается, если изменений больше не было. Вызывать под блокировкой
+    private Set<Long> takeChangedLikes() {
+        Set<Long> filmIds = changedLikes;
+        changedLikes = filmIds.isEmpty() ? null : new HashSet<>();
+        return filmIds;
+    }
+
+    private Partitions load() {
+        Map<Long, Set<Long>> genres = new HashMap<>();
+        genresFilmDbStorage.forEachGenreLink((filmId, genreId) -> genres.computeIfAbsent(filmId, k -> new HashSet<>())
+                .add(genreId));
+        Partitions fresh = new Partitions();
+        filmStorage.forEachFilmRank((filmId, likes, year) -> fresh.put(new FilmRank(filmId, likes, year,
+                genres.getOrDefault(filmId, Set.of()))));
+        return fresh;
+    }
+
+    // Лайк сдвигает счетчик текущего индекса, а во время перестроения id фильма запоминается для перечитывания
+    private void changeLikes(Long filmId, long delta) {
+        lock.writeLock().lock();
+        try {
+            if (partitions != null) {
+                partitions.changeLikes(filmId, delta);
+            }
+            if (changedLikes != null) {
+                changedLikes.add(filmId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Изменение применяется к текущему индексу и, если идет перестроение, записывается в журнал
+    private void apply(Consumer<Partitions> change) {
+        lock.writeLock().lock();
+        try {
+            if (partitions != null) {
+                change.accept(partitions);
+            }
+            if (journal != null) {
+                journal.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Позиция фильма в индексе: неизменяемая, при изменении заменяется новой
+    private record FilmRank(long filmId, long likes, Integer year, Set<Long> genres) {
+    }
+
+    // Ключ разреза "жанр и год"
+    private record GenreYear(long genreId, int year) {
+    }
+
+    // Все разрезы индекса. Класс не потокобезопасен, синхронизацию обеспечивает PopularityIndex
+    private static final class Partitions {
+        private final Map<Long, FilmRank> films = new HashMap<>();
+        private final NavigableSet<FilmRank> all = new TreeSet<>(MOST_LIKED_FIRST);
+        private final Map<Long, NavigableSet<FilmRank>> byGenre = new HashMap<>();
+        private final Map<Integer, NavigableSet<FilmRank>> byYear = new HashMap<>();
+        private final Map<GenreYear, NavigableSet<FilmRank>> byGenreYear = new HashMap<>();
+
+        private NavigableSet<FilmRank> select(Long genreId, Integer year) {
+            NavigableSet<FilmRank> set;
+            if (genreId == null && year == null) {
+                set = all;
+            } else if (year == null) {
+                set = byGenre.get(genreId);
+            } else if (genreId == null) {
+                set = byYear.get(year);
+            } else {
+                set = byGenreYear.get(new GenreYear(genreId, year));
+            }
+            return set == null ? new TreeSet<>(MOST_LIKED_FIRST) : set;
+        }
+
+        private void changeLikes(long filmId, long delta) {
+            FilmRank rank = films.get(filmId);
+            if (rank != null) {
+                put(new FilmRank(filmId, Math.max(0, rank.likes() + delta), rank.year(), rank.genres()));
+            }
+        }
+
+        private void setLikes(long filmId, long likes) {
+            FilmRank rank = films.get(filmId);
+            if (rank != null && rank.likes() != likes) {
+                put(new FilmRank(filmId, likes, rank.year(), rank.genres()));
+            }
+        }
+
+        private void putFilm(long filmId, Integer year, Set<Long> genres) {
+            FilmRank rank = films.get(filmId);
+            put(new FilmRank(filmId, rank == null ? 0 : rank.likes(), year, genres));
+        }
+
+        private void put(FilmRank rank) {
+            remove(rank.filmId());
+            films.put(rank.filmId(), rank);
+            all.add(rank);
+            for (Long genreId : rank.genres()) {
+                byGenre.computeIfAbsent(genreId, k -> new TreeSet<>(MOST_LIKED_FIRST)).add(rank);
+            }
+            if (rank.year() != null) {
+                byYear.computeIfAbsent(rank.year(), k -> new TreeSet<>(MOST_LIKED_FIRST)).add(rank);
+                for (Long genreId : rank.genres()) {
+                    byGenreYear.computeIfAbsent(new GenreYear(genreId, rank.year()),
+                            k -> new TreeSet<>(MOST_LIKED_FIRST)).add(rank);
+                }
+            }
+        }
+
+        private void remove(long filmId) {
+            FilmRank rank = films.remove(filmId);
+            if (rank == null) {
+                return;
+            }
+            all.remove(rank);
+            for (Long genreId : rank.genres()) {
+                removeFrom(byGenre, genreId, rank);
+            }
+            if (rank.year() != null) {
+                removeFrom(byYear, rank.year(), rank);
+                for (Long genreId : rank.genres()) {
+                    removeFrom(byGenreYear, new GenreYear(genreId, rank.year()), rank);
+                }
+            }
+        }
+
+        // Пустые множества удаляются, чтобы разрезы не копили ключи удаленных фильмов
+        private static <K> void removeFrom(Map<K, NavigableSet<FilmRank>> partition, K key, FilmRank rank) {
+            NavigableSet<FilmRank> set = partition.get(key);
+            if (set != null) {
+                set.remove(rank);
+                if (set.isEmpty()) {
+                    partition.remove(key);
+                }
+            }
+        }
+    }
+}
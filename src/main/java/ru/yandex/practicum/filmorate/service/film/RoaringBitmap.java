@@ -0,0 +1,342 @@
+package ru.yandex.practicum.filmorate.service.film;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/* Сжатое множество неотрицательных id в духе Roaring: id делится на старшую часть (ключ контейнера)
+и младшие 16 бит. Контейнеры упорядочены по ключу; контейнер с не больше чем ARRAY_MAX_SIZE значениями -
+отсортированный массив char (2 байта на id), с большим числом значений - битовая карта на 65536 бит (8 КБ).
+Поэтому разреженные множества занимают около 2 байт на элемент, а плотные - не больше 1 бита.
+Пересечение идет по совпадающим ключам: массивы сливаются, битовые карты пересекаются по 64 бита за операцию.
+Класс не потокобезопасен, синхронизацию обеспечивает LikedFilmsIndex. */
+class RoaringBitmap {
+
+    static final long MAX_VALUE = (1L << 47) - 1; // Ключ контейнера должен поместиться в int
+
+    private static final int ARRAY_MAX_SIZE = 4096; // При таком размере массив и битовая карта занимают 8 КБ
+    private static final int BITMAP_WORDS = 1 << 10; // 65536 бит
+
+    private int[] keys = new int[0];
+    private Container[] containers = new Container[0];
+    private int size; // Число контейнеров
+
+    // Метод добавляет id; возвращает false, если он уже был
+    boolean add(long value) {
+        checkValue(value);
+        int key = (int) (value >>> 16);
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, key, new ArrayContainer());
+        }
+        Container container = containers[index];
+        int before = container.cardinality();
+        containers[index] = container.add((char) value);
+        return containers[index].cardinality() > before;
+    }
+
+    // Метод удаляет id; возвращает false, если его не было
+    boolean remove(long value) {
+        if (value < 0 || value > MAX_VALUE) {
+            return false;
+        }
+        int index = Arrays.binarySearch(keys, 0, size, (int) (value >>> 16));
+        if (index < 0) {
+            return false;
+        }
+        Container container = containers[index];
+        int before = container.cardinality();
+        Container changed = container.remove((char) value);
+        if (changed.cardinality() == 0) {
+            removeContainer(index);
+        } else {
+            containers[index] = changed;
+        }
+        return changed.cardinality() < before;
+    }
+
+    boolean contains(long value) {
+        if (value < 0 || value > MAX_VALUE) {
+            return false;
+        }
+        int index = Arrays.binarySearch(keys, 0, size, (int) (value >>> 16));
+        return index >= 0 && containers[index].contains((char) value);
+    }
+
+    long cardinality() {
+        long cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality();
+        }
+        return cardinality;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Пересечение двух множеств; исходные множества не меняются
+    RoaringBitmap and(RoaringBitmap other) {
+        RoaringBitmap result = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Container common = containers[i].and(other.containers[j]);
+                if (common.cardinality() > 0) {
+                    result.insertContainer(result.size, keys[i], common);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    // Метод передает id в consumer по возрастанию
+    void forEach(LongConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            containers[i].forEach((long) keys[i] << 16, consumer);
+        }
+    }
+
+    // Оценка занимаемой памяти: данные контейнеров и массивы ключей и ссылок
+    long memoryBytes() {
+        long bytes = (long) keys.length * (Integer.BYTES + Long.BYTES);
+        for (int i = 0; i < size; i++) {
+            bytes += containers[i].memoryBytes();
+        }
+        return bytes;
+    }
+
+    private void insertContainer(int index, int key, Container container) {
+        if (size == keys.length) {
+            int capacity = Math.max(4, size * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            containers = Arrays.copyOf(containers, capacity);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    private void removeContainer(int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+        containers[--size] = null;
+    }
+
+    private static void checkValue(long value) {
+        if (value < 0 || value > MAX_VALUE) {
+            throw new IllegalArgumentException("id вне диапазона сжатого множества: " + value);
+        }
+    }
+
+    // Контейнер младших 16 бит; изменение может вернуть контейнер другого вида
+    private interface Container {
+        Container add(char value);
+
+        Container remove(char value);
+
+        boolean contains(char value);
+
+        int cardinality();
+
+        Container and(Container other);
+
+        void forEach(long high, LongConsumer consumer);
+
+        long memoryBytes();
+    }
+
+    private static final class ArrayContainer implements Container {
+        private char[] values;
+        private int cardinality;
+
+        private ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        private ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        public Container add(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                return this;
+            }
+            if (cardinality == ARRAY_MAX_SIZE) { // Массив заполнен: дальше выгоднее битовая карта
+                return BitmapContainer.of(this).add(value);
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX_SIZE, Math.max(4, cardinality * 2)));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        public Container remove(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+                cardinality--;
+            }
+            return this;
+        }
+
+        @Override
+        public boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public Container and(Container other) {
+            char[] common = new char[Math.min(cardinality, other.cardinality())];
+            int count = 0;
+            if (other instanceof ArrayContainer array) { // Слияние двух отсортированных массивов
+                int i = 0;
+                int j = 0;
+                while (i < cardinality && j < array.cardinality) {
+                    if (values[i] < array.values[j]) {
+                        i++;
+                    } else if (values[i] > array.values[j]) {
+                        j++;
+                    } else {
+                        common[count++] = values[i];
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < cardinality; i++) {
+                    if (other.contains(values[i])) {
+                        common[count++] = values[i];
+                    }
+                }
+            }
+            return new ArrayContainer(common, count);
+        }
+
+        @Override
+        public void forEach(long high, LongConsumer consumer) {
+            for (int i = 0; i < cardinality; i++) {
+                consumer.accept(high | values[i]);
+            }
+        }
+
+        @Override
+        public long memoryBytes() {
+            return (long) values.length * Character.BYTES;
+        }
+    }
+
+    private static final class BitmapContainer implements Container {
+        private final long[] words;
+        private int cardinality;
+
+        private BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        private static BitmapContainer of(ArrayContainer array) {
+            long[] words = new long[BITMAP_WORDS];
+            for (int i = 0; i < array.cardinality; i++) {
+                words[array.values[i] >>> 6] |= 1L << array.values[i];
+            }
+            return new BitmapContainer(words, array.cardinality);
+        }
+
+        @Override
+        public Container add(char value) {
+            long bit = 1L << value;
+            if ((words[value >>> 6] & bit) == 0) {
+                words[value >>> 6] |= bit;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        public Container remove(char value) {
+            long bit = 1L << value;
+            if ((words[value >>> 6] & bit) == 0) {
+                return this;
+            }
+            words[value >>> 6] &= ~bit;
+            cardinality--;
+            return cardinality <= ARRAY_MAX_SIZE ? toArray(words, cardinality) : this;
+        }
+
+        @Override
+        public boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public Container and(Container other) {
+            if (!(other instanceof BitmapContainer bitmap)) {
+                return other.and(this);
+            }
+            long[] common = new long[BITMAP_WORDS];
+            int count = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                common[i] = words[i] & bitmap.words[i];
+                count += Long.bitCount(common[i]);
+            }
+            return count <= ARRAY_MAX_SIZE ? toArray(common, count) : new BitmapContainer(common, count);
+        }
+
+        @Override
+        public void forEach(long high, LongConsumer consumer) {
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    consumer.accept(high | ((long) i << 6 | Long.numberOfTrailingZeros(word)));
+                    word &= word - 1; // Сбрасываем младший установленный бит
+                }
+            }
+        }
+
+        @Override
+        public long memoryBytes() {
+            return (long) BITMAP_WORDS * Long.BYTES;
+        }
+
+        private static ArrayContainer toArray(long[] words, int cardinality) {
+            char[] values = new char[Math.max(cardinality, 1)];
+            int count = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    values[count++] = (char) ((i << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(values, count);
+        }
+    }
+}
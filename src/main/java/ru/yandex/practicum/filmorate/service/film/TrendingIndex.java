@@ -0,0 +1,206 @@
+package ru.yandex.practicum.filmorate.service.film;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.like.LikeDbStorage;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/* Рейтинг "в тренде": лайки за скользящее окно с экспоненциальным затуханием по времени.
+Лайки считаются по корзинам фиксированной длины: корзина -> (id фильма -> число лайков).
+Вес лайка в корзине b равен exp(lambda * (начало b - landmark)) - прямое затухание (forward decay):
+у всех фильмов текущий вес делится на один и тот же множитель exp(lambda * (now - landmark)),
+поэтому порядок фильмов по сумме весов не меняется со временем и пересчитывать рейтинг
+при каждом запросе не нужно. Новый лайк только добавляет вес фильму, а корзина, вышедшая из окна,
+вычитает свои веса. Рейтинг хранится в упорядоченном множестве, топ-K читается за O(K).
+Чтобы веса не переполнили double, landmark периодически сдвигается, а все веса делятся на общий множитель. */
+@Slf4j
+@Component
+public class TrendingIndex {
+
+    private static final double MAX_EXPONENT = 64; // После этого показателя веса нормируются заново
+
+    private static final Comparator<Trend> HOTTEST_FIRST = Comparator.comparingDouble(Trend::score)
+            .reversed()
+            .thenComparingLong(Trend::filmId);
+
+    private final LikeDbStorage likeDbStorage;
+    private final Clock clock;
+    private final double lambda; // Скорость затухания в 1/с: вес уменьшается вдвое за halfLife
+    private final long bucketSeconds;
+    private final long windowBuckets; // Сколько корзин помещается в окно
+
+    private final NavigableMap<Long, Map<Long, Integer>> buckets = new TreeMap<>(); // Номер корзины -> лайки
+    private final Map<Long, Trend> trends = new HashMap<>(); // id фильма -> его позиция в рейтинге
+    private final NavigableSet<Trend> ranking = new TreeSet<>(HOTTEST_FIRST);
+    private long landmark; // Начало отсчета весов, секунды эпохи
+
+    @Autowired
+    public TrendingIndex(LikeDbStorage likeDbStorage,
+                         @Value("${filmorate.trending.half-life:PT24H}") Duration halfLife,
+                         @Value("${filmorate.trending.window:P7D}") Duration window,
+                         @Value("${filmorate.trending.bucket:PT1H}") Duration bucket) {
+        this(likeDbStorage, halfLife, window, bucket, Clock.systemUTC());
+    }
+
+    TrendingIndex(LikeDbStorage likeDbStorage, Duration halfLife, Duration window, Duration bucket, Clock clock) {
+        this.likeDbStorage = likeDbStorage;
+        this.clock = clock;
+        this.lambda = Math.log(2) / halfLife.toSeconds();
+        this.bucketSeconds = bucket.toSeconds();
+        this.windowBuckets = Math.max(1, window.toSeconds() / bucketSeconds);
+    }
+
+    // Метод загружает лайки, попавшие в текущее окно
+    @PostConstruct
+    public synchronized void load() {
+        buckets.clear();
+        trends.clear();
+        ranking.clear();
+        long now = currentBucket();
+        landmark = now * bucketSeconds;
+        Instant since = Instant.ofEpochSecond((now - windowBuckets + 1) * bucketSeconds);
+        likeDbStorage.forEachLikeSince(since, (filmId, createdAt) -> change(filmId, bucketOf(createdAt), 1));
+        log.info("Рейтинг трендов построен: {} фильмов в окне", trends.size());
+    }
+
+    // Метод возвращает id не более count фильмов с наибольшим весом лайков за окно
+    public synchronized List<Long> getTop(int count) {
+        advance();
+        List<Long> top = new ArrayList<>(Math.min(count, ranking.size()));
+        for (Trend trend : ranking) {
+            if (top.size() == count) {
+                break;
+            }
+            top.add(trend.filmId());
+        }
+        return top;
+    }
+
+    // Метод учитывает новый лайк фильма
+    public synchronized void addLike(Long filmId, Instant createdAt) {
+        advance();
+        change(filmId, bucketOf(createdAt), 1);
+    }
+
+    // Метод убирает лайк, поставленный в момент createdAt; лайки старше окна уже не учитываются
+    public synchronized void removeLike(Long filmId, Instant createdAt) {
+        advance();
+        change(filmId, bucketOf(createdAt), -1);
+    }
+
+    // Метод убирает из рейтинга удаленный фильм
+    public synchronized void removeFilm(Long filmId) {
+        buckets.values().forEach(counts -> counts.remove(filmId));
+        Trend trend = trends.remove(filmId);
+        if (trend != null) {
+            ranking.remove(trend);
+        }
+    }
+
+    // Изменение числа лайков фильма в корзине; корзины вне окна и несуществующие лайки пропускаются
+    private void change(long filmId, long bucket, int delta) {
+        long now = currentBucket();
+        if (bucket <= now - windowBuckets || bucket > now) {
+            return;
+        }
+        Map<Long, Integer> counts = buckets.get(bucket);
+        int count = (counts == null ? 0 : counts.getOrDefault(filmId, 0)) + delta;
+        if (count < 0) {
+            return;
+        }
+        if (counts == null) {
+            counts = new HashMap<>();
+            buckets.put(bucket, counts);
+        }
+        if (count == 0) {
+            counts.remove(filmId);
+            if (counts.isEmpty()) {
+                buckets.remove(bucket);
+            }
+        } else {
+            counts.put(filmId, count);
+        }
+        Trend old = trends.get(filmId);
+        int likes = (old == null ? 0 : old.likes()) + delta;
+        double score = (old == null ? 0 : old.score()) + delta * weight(bucket);
+        if (old != null) {
+            ranking.remove(old);
+        }
+        if (likes <= 0) { // Без лайков в окне фильм выпадает из рейтинга, накопленная погрешность сбрасывается
+            trends.remove(filmId);
+            return;
+        }
+        Trend trend = new Trend(filmId, score, likes);
+        trends.put(filmId, trend);
+        ranking.add(trend);
+    }
+
+    // Метод вычитает корзины, вышедшие из окна, и при необходимости сдвигает landmark
+    private void advance() {
+        long now = currentBucket();
+        NavigableMap<Long, Map<Long, Integer>> expired = buckets.headMap(now - windowBuckets, true);
+        while (!expired.isEmpty()) {
+            Map.Entry<Long, Map<Long, Integer>> oldest = expired.pollFirstEntry();
+            oldest.getValue().forEach((filmId, count) -> subtract(filmId, count, weight(oldest.getKey())));
+        }
+        if (lambda * (now * bucketSeconds - landmark) > MAX_EXPONENT) {
+            renormalize(now * bucketSeconds);
+        }
+    }
+
+    private void subtract(long filmId, int count, double weight) {
+        Trend old = trends.get(filmId);
+        if (old == null) {
+            return;
+        }
+        ranking.remove(old);
+        if (old.likes() <= count) {
+            trends.remove(filmId);
+            return;
+        }
+        Trend trend = new Trend(filmId, old.score() - count * weight, old.likes() - count);
+        trends.put(filmId, trend);
+        ranking.add(trend);
+    }
+
+    // Все веса делятся на один множитель, поэтому порядок фильмов сохраняется
+    private void renormalize(long newLandmark) {
+        double scale = Math.exp(-lambda * (newLandmark - landmark));
+        landmark = newLandmark;
+        ranking.clear();
+        trends.replaceAll((filmId, trend) -> new Trend(filmId, trend.score() * scale, trend.likes()));
+        ranking.addAll(trends.values());
+        log.info("Веса рейтинга трендов нормированы заново, фильмов: {}", trends.size());
+    }
+
+    private double weight(long bucket) {
+        return Math.exp(lambda * (bucket * bucketSeconds - landmark));
+    }
+
+    private long bucketOf(Instant instant) {
+        return Math.floorDiv(instant.getEpochSecond(), bucketSeconds);
+    }
+
+    private long currentBucket() {
+        return bucketOf(clock.instant());
+    }
+
+    // Позиция фильма в рейтинге: сумма весов и число лайков в окне
+    private record Trend(long filmId, double score, int likes) {
+    }
+}
@@ -0,0 +1,368 @@
+package ru.yandex.practicum.filmorate.service.importing;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.dto.importing.ImportLikeDto;
+import ru.yandex.practicum.filmorate.dto.importing.ImportResultDto;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.GenresFilm;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.RecommendationModel;
+import ru.yandex.practicum.filmorate.service.film.LikedFilmsIndex;
+import ru.yandex.practicum.filmorate.service.film.PopularityIndex;
+import ru.yandex.practicum.filmorate.service.film.TrendingIndex;
+import ru.yandex.practicum.filmorate.storage.director.DirectorDBStorage;
+import ru.yandex.practicum.filmorate.storage.director.DirectorFilmDBStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.genres.GenresFilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.like.LikeDbStorage;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/* Массовая загрузка пользователей, фильмов и лайков из NDJSON (один JSON-объект на строку).
+Каждая строка разбирается и проверяется в памяти теми же ограничениями, что и при создании через API;
+некорректные строки отклоняются с номером строки и причиной, остальные копятся в порции по chunk-size строк.
+Порция записывается пакетами JDBC в одной транзакции: ошибка базы отклоняет только эту порцию.
+События ленты по загруженным строкам не создаются - загрузка не является действием пользователя. */
+@Slf4j
+@Service
+public class BulkImportService {
+
+    private static final int MAX_REPORTED_ERRORS = 100; // Больше сообщений об ошибках в ответ не попадает
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final UserStorage userStorage;
+    private final FilmStorage filmStorage;
+    private final GenresFilmDbStorage genresFilmDbStorage;
+    private final DirectorDBStorage directorDBStorage;
+    private final DirectorFilmDBStorage directorFilmDBStorage;
+    private final GenreDbStorage genreDbStorage;
+    private final MpaDbStorage mpaDbStorage;
+    private final LikeDbStorage likeDbStorage;
+    private final RecommendationModel recommendationModel;
+    private final PopularityIndex popularityIndex;
+    private final TrendingIndex trendingIndex;
+    private final LikedFilmsIndex likedFilmsIndex;
+    private final int chunkSize; // Строк в одной транзакции
+
+    public BulkImportService(ObjectMapper objectMapper, Validator validator, TransactionTemplate transactionTemplate,
+                             @Qualifier("userDbStorage") UserStorage userStorage,
+                             @Qualifier("filmDbStorage") FilmStorage filmStorage,
+                             GenresFilmDbStorage genresFilmDbStorage,
+                             DirectorDBStorage directorDBStorage,
+                             DirectorFilmDBStorage directorFilmDBStorage,
+                             GenreDbStorage genreDbStorage,
+                             MpaDbStorage mpaDbStorage,
+                             LikeDbStorage likeDbStorage,
+                             RecommendationModel recommendationModel,
+                             PopularityIndex popularityIndex,
+                             TrendingIndex trendingIndex,
+                             LikedFilmsIndex likedFilmsIndex,
+                             @Value("${filmorate.import.chunk-size:1000}") int chunkSize) {
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.transactionTemplate = transactionTemplate;
+        this.userStorage = userStorage;
+        this.filmStorage = filmStorage;
+        this.genresFilmDbStorage = genresFilmDbStorage;
+        this.directorDBStorage = directorDBStorage;
+        this.directorFilmDBStorage = directorFilmDBStorage;
+        this.genreDbStorage = genreDbStorage;
+        this.mpaDbStorage = mpaDbStorage;
+        this.likeDbStorage = likeDbStorage;
+        this.recommendationModel = recommendationModel;
+        this.popularityIndex = popularityIndex;
+        this.trendingIndex = trendingIndex;
+        this.likedFilmsIndex = likedFilmsIndex;
+        this.chunkSize = chunkSize;
+    }
+
+    // Загрузка пользователей в формате тела POST /users
+    public ImportResultDto importUsers(InputStream input) {
+        return importRows(input, User.class, this::checkUser, (rows, report) -> {
+            List<User> users = rows.stream()
+                    .map(ImportRow::value)
+                    .toList();
+            userStorage.createUsers(users);
+            return users;
+        }, users -> {
+        });
+    }
+
+    // Загрузка фильмов в формате тела POST /films: mpa, жанры и режиссеры указываются по id
+    public ImportResultDto importFilms(InputStream input) {
+        return importRows(input, Film.class, this::checkFilm, this::writeFilms,
+                films -> films.forEach(film -> popularityIndex.putFilm(film.getId(), film.getReleaseDate(),
+                        film.getGenres() == null ? List.of() : film.getGenres().stream()
+                                .map(Genre::getId)
+                                .toList())));
+    }
+
+    // Загрузка лайков: строки вида {"userId": 1, "filmId": 2}; повторные лайки не дублируются
+    public ImportResultDto importLikes(InputStream input) {
+        return importRows(input, ImportLikeDto.class, like -> null, this::writeLikes,
+                // Модель рекомендаций и индексы популярности обновляются только после фиксации транзакции
+                likes -> {
+                    likes.forEach(like -> {
+                        recommendationModel.addLike(like.getUserId(), like.getFilmId());
+                        trendingIndex.addLike(like.getFilmId(), like.getCreatedAt());
+                        likedFilmsIndex.addLike(like.getUserId(), like.getFilmId());
+                    });
+                    popularityIndex.refreshLikes(likes.stream()
+                            .map(Like::getFilmId)
+                            .collect(Collectors.toSet()));
+                });
+    }
+
+    /* Общий конвейер загрузки: разбор и проверка строки -> накопление порции -> запись порции в транзакции.
+    afterCommit вызывается для записанных строк только после успешной фиксации порции. */
+    private <T, R> ImportResultDto importRows(InputStream input, Class<T> type, Function<T, String> check,
+                                              ChunkWriter<T, R> writer, Consumer<List<R>> afterCommit) {
+        long start = System.nanoTime();
+        ObjectReader reader = objectMapper.readerFor(type);
+        ImportReport report = new ImportReport();
+        List<ImportRow<T>> chunk = new ArrayList<>(chunkSize);
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            long lineNumber = 0;
+            String line;
+            while ((line = lines.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                T value;
+                try {
+                    value = reader.readValue(line);
+                } catch (JsonProcessingException e) {
+                    report.reject(lineNumber, "некорректный JSON");
+                    continue;
+                }
+                String error = validate(value);
+                if (error == null) {
+                    error = check.apply(value);
+                }
+                if (error != null) {
+                    report.reject(lineNumber, error);
+                    continue;
+                }
+                chunk.add(new ImportRow<>(lineNumber, value));
+                if (chunk.size() == chunkSize) {
+                    writeChunk(chunk, writer, afterCommit, report);
+                    chunk.clear();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(chunk, writer, afterCommit, report);
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        log.info("Загрузка {}: сохранено {} строк, отклонено {} строк за {} мс",
+                type.getSimpleName(), report.imported, report.rejected, elapsedMs);
+        return report.toDto(elapsedMs);
+    }
+
+    // Запись одной порции в транзакции; при ошибке базы отклоняется вся порция
+    private <T, R> void writeChunk(List<ImportRow<T>> chunk, ChunkWriter<T, R> writer,
+                                   Consumer<List<R>> afterCommit, ImportReport report) {
+        ImportReport chunkReport = new ImportReport();
+        List<R> written;
+        try {
+            written = transactionTemplate.execute(status -> writer.write(chunk, chunkReport));
+        } catch (DataAccessException e) {
+            log.warn("Порция из {} строк не сохранена", chunk.size(), e);
+            String reason = "порция не сохранена: " + e.getMostSpecificCause().getMessage();
+            chunk.forEach(row -> report.reject(row.line(), reason));
+            return;
+        }
+        report.merge(chunkReport);
+        report.imported += chunk.size() - chunkReport.rejected;
+        afterCommit.accept(Objects.requireNonNull(written));
+    }
+
+    // Метод проверяет строку ограничениями Bean Validation и возвращает текст ошибки или null
+    private <T> String validate(T value) {
+        Set<ConstraintViolation<T>> violations = validator.validate(value);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    // Хранилище записывает дату рождения без проверки на null, поэтому строка без нее отклоняется
+    private String checkUser(User user) {
+        return user.getBirthday() == null ? "дата рождения должна быть указана" : null;
+    }
+
+    // mpa и жанры проверяются по справочникам в памяти, режиссеры - при записи порции
+    private String checkFilm(Film film) {
+        if (film.getReleaseDate() == null) {
+            return "дата релиза должна быть указана";
+        }
+        if (film.getMpa() == null || mpaDbStorage.getMpaById(film.getMpa().getId()).isEmpty()) {
+            return "mpa с таким id не существует";
+        }
+        if (film.getGenres() != null) {
+            for (Genre genre : film.getGenres()) {
+                if (genre == null || genreDbStorage.getGenreById(genre.getId()).isEmpty()) {
+                    return "жанр с таким id не существует";
+                }
+            }
+        }
+        if (film.getDirectors() != null && film.getDirectors().stream()
+                .anyMatch(director -> director == null || director.getId() == null)) {
+            return "не указан id режиссера";
+        }
+        return null;
+    }
+
+    private List<Film> writeFilms(List<ImportRow<Film>> rows, ImportReport report) {
+        // Существование режиссеров порции проверяется одним запросом
+        List<Director> requested = rows.stream()
+                .map(ImportRow::value)
+                .filter(film -> film.getDirectors() != null)
+                .flatMap(film -> film.getDirectors().stream())
+                .collect(Collectors.toMap(Director::getId, Function.identity(), (a, b) -> a, LinkedHashMap::new))
+                .values().stream()
+                .toList();
+        Map<Long, Director> directors = requested.isEmpty() ? Map.of() : directorDBStorage.getListDirector(requested)
+                .stream()
+                .collect(Collectors.toMap(Director::getId, Function.identity()));
+        List<Film> films = new ArrayList<>(rows.size());
+        for (ImportRow<Film> row : rows) {
+            Film film = row.value();
+            if (film.getDirectors() != null && !film.getDirectors().stream()
+                    .allMatch(director -> directors.containsKey(director.getId()))) {
+                report.reject(row.line(), "режиссер с таким id не существует");
+                continue;
+            }
+            films.add(film);
+        }
+        if (films.isEmpty()) {
+            return films;
+        }
+        filmStorage.createFilms(films);
+        List<GenresFilm> genreLinks = new ArrayList<>();
+        for (Film film : films) {
+            if (film.getGenres() != null) {
+                film.getGenres().stream()
+                        .map(Genre::getId)
+                        .distinct()
+                        .forEach(genreId -> genreLinks.add(GenresFilm.builder()
+                                .filmId(film.getId())
+                                .genre(Genre.builder().id(genreId).build())
+                                .build()));
+            }
+        }
+        genresFilmDbStorage.addGenresToFilms(genreLinks);
+        directorFilmDBStorage.createPosts(films);
+        return films;
+    }
+
+    private List<Like> writeLikes(List<ImportRow<ImportLikeDto>> rows, ImportReport report) {
+        // Существование пользователей и фильмов порции проверяется двумя запросами вместо 2N
+        Set<Long> users = userStorage.getExistingIds(rows.stream()
+                .map(row -> row.value().getUserId())
+                .collect(Collectors.toSet()));
+        Set<Long> films = filmStorage.getExistingIds(rows.stream()
+                .map(row -> row.value().getFilmId())
+                .collect(Collectors.toSet()));
+        Map<Like, Long> likes = new LinkedHashMap<>(); // Повторы внутри порции схлопываются
+        Instant now = Instant.now(); // Время лайков порции: пишется в created_at и передается индексу трендов
+        for (ImportRow<ImportLikeDto> row : rows) {
+            ImportLikeDto like = row.value();
+            if (!users.contains(like.getUserId())) {
+                report.reject(row.line(), "пользователь с id " + like.getUserId() + " не найден");
+            } else if (!films.contains(like.getFilmId())) {
+                report.reject(row.line(), "фильм с id " + like.getFilmId() + " не найден");
+            } else {
+                likes.putIfAbsent(Like.builder()
+                        .userId(like.getUserId())
+                        .filmId(like.getFilmId())
+                        .createdAt(now)
+                        .build(), row.line());
+            }
+        }
+        if (likes.isEmpty()) {
+            return List.of();
+        }
+        // Повторы лайков считаются загруженными строками, но в индексы попадают только вставленные лайки
+        return likeDbStorage.addLikes(new ArrayList<>(likes.keySet()));
+    }
+
+    // Запись порции проверенных строк; возвращает записанные объекты
+    @FunctionalInterface
+    private interface ChunkWriter<T, R> {
+        List<R> write(List<ImportRow<T>> rows, ImportReport report);
+    }
+
+    // Проверенная строка и ее номер во входных данных
+    private record ImportRow<T>(long line, T value) {
+    }
+
+    // Накопитель итогов загрузки
+    private static final class ImportReport {
+        private long imported;
+        private long rejected;
+        private final List<String> errors = new ArrayList<>();
+
+        private void reject(long line, String reason) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add("Строка " + line + ": " + reason);
+            }
+        }
+
+        private void merge(ImportReport other) {
+            rejected += other.rejected;
+            other.errors.stream()
+                    .limit(MAX_REPORTED_ERRORS - errors.size())
+                    .forEach(errors::add);
+        }
+
+        private ImportResultDto toDto(long elapsedMs) {
+            return ImportResultDto.builder()
+                    .imported(imported)
+                    .rejected(rejected)
+                    .elapsedMs(elapsedMs)
+                    .errors(errors)
+                    .build();
+        }
+    }
+}
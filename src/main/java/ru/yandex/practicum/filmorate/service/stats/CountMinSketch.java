@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.service.stats;
+
+import java.util.SplittableRandom;
+
+/* Count-Min Sketch: depth строк по width счетчиков, каждый элемент увеличивает по одному счетчику в строке.
+Оценка частоты - минимум по строкам: она не меньше истинной и с вероятностью не ниже 1 - delta
+превышает ее не больше чем на epsilon * N. Для этого width = ceil(e / epsilon), depth = ceil(ln(1 / delta)).
+Память фиксирована и не зависит ни от длины потока, ни от числа разных элементов.
+Класс не потокобезопасен, синхронизацию обеспечивает HeavyHitters. */
+class CountMinSketch {
+
+    private static final long SEED = 0x5EED_F11E_0000_0001L; // Одинаковые хеши между запусками
+
+    private final int width;
+    private final double epsilon;
+    private final long[][] table;
+    private final long[] seeds; // Своя хеш-функция на каждую строку
+
+    CountMinSketch(double epsilon, double delta) {
+        if (epsilon <= 0 || epsilon >= 1 || delta <= 0 || delta >= 1) {
+            throw new IllegalArgumentException("epsilon и delta должны лежать в (0, 1): " + epsilon + ", " + delta);
+        }
+        this.width = (int) Math.ceil(Math.E / epsilon);
+        this.epsilon = Math.E / width;
+        int depth = (int) Math.ceil(Math.log(1 / delta));
+        this.table = new long[depth][width];
+        SplittableRandom random = new SplittableRandom(SEED);
+        this.seeds = new long[depth];
+        for (int row = 0; row < depth; row++) {
+            seeds[row] = random.nextLong();
+        }
+    }
+
+    void add(long item) {
+        for (int row = 0; row < table.length; row++) {
+            table[row][index(row, item)]++;
+        }
+    }
+
+    long estimate(long item) {
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < table.length; row++) {
+            min = Math.min(min, table[row][index(row, item)]);
+        }
+        return min;
+    }
+
+    // Доля потока, на которую оценка может превысить истинную частоту
+    double epsilon() {
+        return epsilon;
+    }
+
+    long memoryBytes() {
+        return (long) table.length * width * Long.BYTES;
+    }
+
+    // Перемешивание splitmix64 с солью строки
+    private int index(int row, long item) {
+        long z = item ^ seeds[row];
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return (int) Long.remainderUnsigned(z, width);
+    }
+}
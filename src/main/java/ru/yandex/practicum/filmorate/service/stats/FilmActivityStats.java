@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.service.stats;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dto.stats.HeavyHittersDto;
+import ru.yandex.practicum.filmorate.exception.BadRequestException;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/* Приблизительная статистика активности по фильмам для дашбордов: лайки учитываются FilmService
+только при действительном добавлении, просмотры - из запросов карточки фильма. Память на метрику фиксирована и задается настройками,
+история событий не хранится, статистика накапливается с запуска приложения. */
+@Component
+public class FilmActivityStats {
+
+    public enum Metric {
+        LIKES,
+        VIEWS
+    }
+
+    private final Map<Metric, HeavyHitters> metrics = new EnumMap<>(Metric.class);
+
+    public FilmActivityStats(@Value("${filmorate.stats.capacity:1000}") int capacity,
+                             @Value("${filmorate.stats.epsilon:0.001}") double epsilon,
+                             @Value("${filmorate.stats.delta:0.01}") double delta) {
+        for (Metric metric : Metric.values()) {
+            metrics.put(metric, new HeavyHitters(metric.name().toLowerCase(Locale.ROOT), capacity, epsilon, delta));
+        }
+    }
+
+    // Метод учитывает новый лайк фильма; повторный лайк того же пользователя не учитывается
+    public void recordLike(Long filmId) {
+        metrics.get(Metric.LIKES).add(filmId);
+    }
+
+    // Метод учитывает просмотр карточки фильма
+    public void recordView(Long filmId) {
+        metrics.get(Metric.VIEWS).add(filmId);
+    }
+
+    // Метод возвращает не больше count фильмов с наибольшим числом событий метрики
+    public HeavyHittersDto getTop(String metric, Integer count) {
+        if (count == null || count <= 0) {
+            throw new BadRequestException("Параметр count должен быть положительным: " + count);
+        }
+        return metrics.get(parseMetric(metric)).getTop(count);
+    }
+
+    private static Metric parseMetric(String metric) {
+        try {
+            return Metric.valueOf(metric.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Неизвестная метрика: " + metric);
+        }
+    }
+}
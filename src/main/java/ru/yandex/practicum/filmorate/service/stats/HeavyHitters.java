@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.service.stats;
+
+import ru.yandex.practicum.filmorate.dto.stats.HeavyHitterDto;
+import ru.yandex.practicum.filmorate.dto.stats.HeavyHittersDto;
+
+import java.util.Comparator;
+import java.util.List;
+
+/* Поиск самых частых элементов потока в фиксированной памяти. Кандидатов отбирает сводка Space-Saving,
+а Count-Min Sketch дает вторую, независимую оценку сверху: в ответе берется меньшая из двух.
+Оценка снизу - счетчик Space-Saving за вычетом унаследованной погрешности. */
+public class HeavyHitters {
+
+    private final String metric;
+    private final double delta;
+    private final SpaceSavingSummary summary;
+    private final CountMinSketch sketch;
+    private long total;
+
+    public HeavyHitters(String metric, int capacity, double epsilon, double delta) {
+        this.metric = metric;
+        this.delta = delta;
+        this.summary = new SpaceSavingSummary(capacity);
+        this.sketch = new CountMinSketch(epsilon, delta);
+    }
+
+    public synchronized void add(long item) {
+        total++;
+        summary.add(item);
+        sketch.add(item);
+    }
+
+    // Метод возвращает не больше count элементов по убыванию оценки сверху
+    public synchronized HeavyHittersDto getTop(int count) {
+        List<HeavyHitterDto> items = summary.counters().stream()
+                .map(counter -> HeavyHitterDto.builder()
+                        .filmId(counter.item())
+                        .count(Math.min(counter.count(), sketch.estimate(counter.item())))
+                        .minCount(counter.count() - counter.error())
+                        .build())
+                .sorted(Comparator.comparingLong(HeavyHitterDto::getCount)
+                        .reversed()
+                        .thenComparing(HeavyHitterDto::getFilmId))
+                .limit(count)
+                .toList();
+        return HeavyHittersDto.builder()
+                .metric(metric)
+                .totalEvents(total)
+                .capacity(summary.capacity())
+                .guaranteedError(total / summary.capacity())
+                .sketchError((long) Math.ceil(sketch.epsilon() * total))
+                .confidence(1 - delta)
+                .memoryBytes(memoryBytes())
+                .items(items)
+                .build();
+    }
+
+    public long memoryBytes() {
+        return (long) summary.capacity() * SpaceSavingSummary.BYTES_PER_COUNTER + sketch.memoryBytes();
+    }
+}
@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.service.stats;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/* Сводка Space-Saving: на весь поток хранится не больше capacity счетчиков.
+Когда все счетчики заняты, новый элемент вытесняет элемент с наименьшим счетчиком и наследует
+его значение как погрешность. Поэтому счетчик элемента не меньше его истинной частоты и превышает ее
+не больше чем на error <= N / capacity, а любой элемент с частотой больше N / capacity гарантированно
+есть в сводке. Класс не потокобезопасен, синхронизацию обеспечивает HeavyHitters. */
+class SpaceSavingSummary {
+
+    // Оценка памяти на счетчик: узел HashMap, ключ Long, объект Slot и ссылка в куче
+    static final int BYTES_PER_COUNTER = 104;
+
+    private static final Comparator<Counter> LARGEST_FIRST = Comparator.comparingLong(Counter::count)
+            .reversed()
+            .thenComparingLong(Counter::error)
+            .thenComparingLong(Counter::item);
+
+    private final Map<Long, Slot> slots;
+    /* Куча с минимальным счетчиком в корне: он и вытесняется. Счетчик только растет, поэтому
+    после увеличения слот просеивается вниз; частые элементы сидят в листьях и почти не двигаются. */
+    private final Slot[] heap;
+    private int size;
+
+    SpaceSavingSummary(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Число счетчиков должно быть положительным: " + capacity);
+        }
+        this.slots = new HashMap<>(capacity * 4 / 3 + 1);
+        this.heap = new Slot[capacity];
+    }
+
+    void add(long item) {
+        Slot slot = slots.get(item);
+        if (slot == null) {
+            if (size < heap.length) {
+                slot = new Slot();
+                slot.index = size;
+                heap[size++] = slot;
+            } else {
+                slot = heap[0]; // Слот вытесняемого элемента переходит новому
+                slots.remove(slot.item);
+                slot.error = slot.count;
+            }
+            slot.item = item;
+            slots.put(item, slot);
+        }
+        slot.count++;
+        siftDown(slot);
+    }
+
+    // Все счетчики по убыванию значения
+    List<Counter> counters() {
+        List<Counter> counters = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            counters.add(new Counter(heap[i].item, heap[i].count, heap[i].error));
+        }
+        counters.sort(LARGEST_FIRST);
+        return counters;
+    }
+
+    int capacity() {
+        return heap.length;
+    }
+
+    private void siftDown(Slot slot) {
+        int index = slot.index;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1].count < heap[child].count) {
+                child++;
+            }
+            if (heap[child].count >= slot.count) {
+                break;
+            }
+            heap[index] = heap[child];
+            heap[index].index = index;
+            index = child;
+        }
+        heap[index] = slot;
+        slot.index = index;
+    }
+
+    // Счетчик элемента: истинная частота лежит в [count - error, count]
+    record Counter(long item, long count, long error) {
+    }
+
+    private static final class Slot {
+        private long item;
+        private long count;
+        private long error;
+        private int index; // Позиция в куче
+    }
+}
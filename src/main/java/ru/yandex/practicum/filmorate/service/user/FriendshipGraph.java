@@ -0,0 +1,279 @@
+package ru.yandex.practicum.filmorate.service.user;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.friend.FriendDbStorage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/* Граф дружбы в памяти: для каждого пользователя - отсортированный массив int с id тех, кого он добавил
+в друзья (строки FRIENDSHIP с его user_id). Массив не меняется после публикации: после добавления или удаления друга
+список пользователя перечитывается из базы в новый массив внутри ConcurrentHashMap.compute, поэтому изменения
+одного пользователя идут по очереди, а чтение не блокируется. Общие друзья - пересечение двух отсортированных массивов слиянием
+за O(n + m), а если один список много короче другого - двоичным поиском за O(n log m).
+Рекомендации друзей - обход на два шага от пользователя с ограниченным числом просмотренных связей.
+Граф загружается из базы при старте и обновляется UserService после каждого изменения FRIENDSHIP. */
+@Slf4j
+@Component
+public class FriendshipGraph {
+
+    private static final int[] NO_FRIENDS = new int[0];
+    private static final int GALLOP_RATIO = 32; // Во сколько раз списки должны отличаться для двоичного поиска
+
+    private final FriendDbStorage friendDbStorage;
+
+    private final Map<Long, int[]> friends = new ConcurrentHashMap<>(); // id пользователя -> id его друзей
+
+    public FriendshipGraph(FriendDbStorage friendDbStorage) {
+        this.friendDbStorage = friendDbStorage;
+    }
+
+    // Метод строит граф по таблице FRIENDSHIP
+    @PostConstruct
+    public void load() {
+        Map<Long, IntList> loaded = new HashMap<>();
+        friendDbStorage.forEachFriendship((userId, friendId) -> loaded.computeIfAbsent(userId, k -> new IntList())
+                .add(toInt(friendId)));
+        friends.clear();
+        long edges = 0;
+        for (Map.Entry<Long, IntList> entry : loaded.entrySet()) {
+            int[] sorted = entry.getValue().toSortedArray();
+            friends.put(entry.getKey(), sorted);
+            edges += sorted.length;
+        }
+        log.info("Граф дружбы загружен: {} пользователей с друзьями, {} связей", friends.size(), edges);
+    }
+
+    // Метод возвращает id друзей пользователя по возрастанию
+    public List<Long> getFriendIds(Long userId) {
+        return toList(friendsOf(userId));
+    }
+
+    // Метод возвращает не более limit id друзей пользователя, больших afterId, по возрастанию
+    public List<Long> getFriendIdsAfter(Long userId, long afterId, int limit) {
+        int[] list = friendsOf(userId);
+        int from = afterId >= Integer.MAX_VALUE ? list.length : Arrays.binarySearch(list, (int) afterId + 1);
+        from = from < 0 ? -from - 1 : from;
+        return toList(Arrays.copyOfRange(list, from, Math.min(list.length, from + limit)));
+    }
+
+    // Метод возвращает id общих друзей двух пользователей по возрастанию
+    public List<Long> getMutualFriendIds(Long userId, Long otherUserId) {
+        int[] first = friendsOf(userId);
+        int[] second = friendsOf(otherUserId);
+        return toList(first.length <= second.length ? intersect(first, second) : intersect(second, first));
+    }
+
+    /* Метод возвращает не более limit id друзей друзей пользователя по убыванию числа общих друзей
+    (друзей пользователя, у которых кандидат в друзьях), при равенстве - по возрастанию id.
+    Просматривается не больше workBudget связей: друзья обходятся от короткого списка к длинному, чтобы
+    друзья с огромными списками не съели весь бюджет. Если бюджета не хватило, последний список
+    просматривается не целиком, а ранжирование идет по уже просмотренным связям. */
+    public List<Long> suggestFriends(Long userId, int limit, int workBudget) {
+        int[] own = friendsOf(userId);
+        int user = toInt(userId);
+        long[] byDegree = new long[own.length]; // Длина списка друга в старших 32 битах, id друга - в младших
+        for (int i = 0; i < own.length; i++) {
+            byDegree[i] = (long) friendsOf((long) own[i]).length << 32 | own[i];
+        }
+        Arrays.sort(byDegree);
+        IntCounter mutual = new IntCounter();
+        long remaining = workBudget;
+        for (int i = 0; i < byDegree.length && remaining > 0; i++) {
+            int[] list = friendsOf((long) (int) byDegree[i]);
+            int visited = (int) Math.min(list.length, remaining);
+            for (int j = 0; j < visited; j++) {
+                int candidate = list[j];
+                if (candidate != user && Arrays.binarySearch(own, candidate) < 0) {
+                    mutual.increment(candidate);
+                }
+            }
+            remaining -= visited;
+        }
+        return mutual.top(limit);
+    }
+
+    // Метод проверяет, добавил ли пользователь другого пользователя в друзья
+    public boolean hasFriend(Long userId, Long friendId) {
+        return Arrays.binarySearch(friendsOf(userId), toInt(friendId)) >= 0;
+    }
+
+    // Отсортированный массив id друзей; массив нельзя изменять
+    public int[] friendsOf(Long userId) {
+        return friends.getOrDefault(userId, NO_FRIENDS);
+    }
+
+    /* Метод перечитывает из базы список друзей пользователя после изменения его строк FRIENDSHIP.
+    Чтение идет внутри compute: обновления одного пользователя выполняются по очереди, и каждое читает
+    базу уже после своей фиксации. Поэтому последним в графе остается самый свежий список, даже если
+    параллельные запросы зафиксировали изменения в одном порядке, а дошли до графа в другом. */
+    public void refreshFriends(Long userId) {
+        friends.compute(userId, (id, current) -> {
+            IntList list = new IntList();
+            friendDbStorage.getFriendIds(userId).forEach(friendId -> list.add(toInt(friendId)));
+            return list.size == 0 ? null : list.toSortedArray();
+        });
+    }
+
+    // Метод убирает удаленного пользователя: его список друзей и его самого из чужих списков
+    public void removeUser(Long userId) {
+        friends.remove(userId);
+        int user = toInt(userId);
+        for (Long id : friends.keySet()) {
+            friends.computeIfPresent(id, (key, current) -> remove(current, user));
+        }
+    }
+
+    // Массив без значения или null, если массив стал пустым (тогда запись удаляется из карты)
+    private static int[] remove(int[] list, int value) {
+        int index = Arrays.binarySearch(list, value);
+        if (index < 0) {
+            return list;
+        }
+        if (list.length == 1) {
+            return null;
+        }
+        int[] updated = new int[list.length - 1];
+        System.arraycopy(list, 0, updated, 0, index);
+        System.arraycopy(list, index + 1, updated, index, list.length - index - 1);
+        return updated;
+    }
+
+    // Пересечение отсортированных массивов; shorter не длиннее longer
+    static int[] intersect(int[] shorter, int[] longer) {
+        int[] common = new int[shorter.length];
+        int count = 0;
+        if ((long) shorter.length * GALLOP_RATIO < longer.length) {
+            int from = 0; // Значения возрастают, поэтому поиск продолжается с места предыдущей находки
+            for (int value : shorter) {
+                int index = Arrays.binarySearch(longer, from, longer.length, value);
+                if (index >= 0) {
+                    common[count++] = value;
+                    from = index + 1;
+                } else {
+                    from = -index - 1;
+                }
+            }
+        } else {
+            int i = 0;
+            int j = 0;
+            while (i < shorter.length && j < longer.length) {
+                if (shorter[i] < longer[j]) {
+                    i++;
+                } else if (shorter[i] > longer[j]) {
+                    j++;
+                } else {
+                    common[count++] = shorter[i];
+                    i++;
+                    j++;
+                }
+            }
+        }
+        return Arrays.copyOf(common, count);
+    }
+
+    private static List<Long> toList(int[] ids) {
+        List<Long> list = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            list.add((long) id);
+        }
+        return list;
+    }
+
+    // id пользователей в FRIENDSHIP имеют тип INTEGER
+    private static int toInt(long id) {
+        return Math.toIntExact(id);
+    }
+
+    // Счетчик по id с открытой адресацией: без упаковки в Integer и без объекта на каждого кандидата
+    private static final class IntCounter {
+        private int[] keys = new int[64];
+        private int[] counts = new int[64]; // 0 - свободная ячейка
+        private int size;
+
+        private void increment(int key) {
+            int mask = keys.length - 1;
+            int slot = (key * 0x9E3779B9) & mask; // Перемешиваем биты: id подряд не должны идти в соседние ячейки
+            while (counts[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (counts[slot] == 0) {
+                keys[slot] = key;
+                if (++size * 2 > keys.length) {
+                    counts[slot] = 1;
+                    grow();
+                    return;
+                }
+            }
+            counts[slot]++;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            int[] oldCounts = counts;
+            keys = new int[oldKeys.length * 2];
+            counts = new int[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldCounts[i] != 0) {
+                    int slot = (oldKeys[i] * 0x9E3779B9) & mask;
+                    while (counts[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    counts[slot] = oldCounts[i];
+                }
+            }
+        }
+
+        // limit ключей с наибольшими счетчиками через кучу размера limit, при равенстве - с меньшим id
+        private List<Long> top(int limit) {
+            PriorityQueue<Long> best = new PriorityQueue<>(); // В вершине - худший из лучших
+            for (int i = 0; i < keys.length; i++) {
+                if (counts[i] == 0) {
+                    continue;
+                }
+                long rank = (long) counts[i] << 32 | (Integer.MAX_VALUE - keys[i]);
+                if (best.size() < limit) {
+                    best.add(rank);
+                } else if (rank > best.peek()) {
+                    best.poll();
+                    best.add(rank);
+                }
+            }
+            List<Long> ids = new ArrayList<>(best.size());
+            while (!best.isEmpty()) {
+                ids.add((long) (Integer.MAX_VALUE - (int) (long) best.poll()));
+            }
+            Collections.reverse(ids);
+            return ids;
+        }
+    }
+
+    // Растущий массив int для загрузки без упаковки в Integer
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private int[] toSortedArray() {
+            int[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
@@ -1,42 +1,80 @@
 package ru.yandex.practicum.filmorate.service.user;
 
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.dto.film.FilmDto;
+import ru.yandex.practicum.filmorate.dto.page.PageDto;
 import ru.yandex.practicum.filmorate.dto.user.UpdateUserRequest;
 import ru.yandex.practicum.filmorate.dto.user.UserDto;
 import ru.yandex.practicum.filmorate.eventHanding.FeedEventSource;
+import ru.yandex.practicum.filmorate.exception.BadRequestException;
 import ru.yandex.practicum.filmorate.exception.InternalServerException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.mapper.UserMapper;
 import ru.yandex.practicum.filmorate.model.EventType;
 import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.Like;
 import ru.yandex.practicum.filmorate.model.Operation;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.RecommendationModel;
 import ru.yandex.practicum.filmorate.service.RecommendationService;
+import ru.yandex.practicum.filmorate.service.film.LikedFilmsIndex;
+import ru.yandex.practicum.filmorate.service.film.PopularityIndex;
+import ru.yandex.practicum.filmorate.service.film.TrendingIndex;
 import ru.yandex.practicum.filmorate.storage.friend.FriendDbStorage;
+import ru.yandex.practicum.filmorate.storage.like.LikeDbStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service // Аннотация указывает, что данный класс является сервисом и может быть использован в контексте Spring
 public class UserService {
 
+    private static final int DEFAULT_SUGGESTIONS = 10; // Рекомендуемых друзей без параметра limit
+
     private final UserStorage userStorage; // Хранение ссылки на объект UserStorage для работы с данными о пользователях
     // Хранение ссылки на объект FriendDbStorage для работы с дружескими отношениями
     private final FriendDbStorage friendDbStorage;
     private final FeedEventSource feedEventSource;
     private final RecommendationService recommendation;
+    private final RecommendationModel recommendationModel;
+    private final LikeDbStorage likeDbStorage;
+    private final PopularityIndex popularityIndex;
+    private final TrendingIndex trendingIndex;
+    private final LikedFilmsIndex likedFilmsIndex;
+    private final FriendshipGraph friendshipGraph; // Граф дружбы в памяти для списков друзей и общих друзей
+    private final int suggestionsWorkBudget; // Сколько связей графа можно просмотреть за один запрос рекомендаций
 
     // Конструктор, принимающий UserStorage в качестве параметра
     public UserService(@Qualifier("userDbStorage") UserStorage userStorage, FriendDbStorage friendDbStorage,
                        RecommendationService recommendation,
-                       FeedEventSource feedEventSource) {
+                       RecommendationModel recommendationModel,
+                       FeedEventSource feedEventSource,
+                       LikeDbStorage likeDbStorage,
+                       PopularityIndex popularityIndex,
+                       TrendingIndex trendingIndex,
+                       LikedFilmsIndex likedFilmsIndex,
+                       FriendshipGraph friendshipGraph,
+                       @Value("${filmorate.friends.suggestions.work-budget:100000}") int suggestionsWorkBudget) {
         this.userStorage = userStorage;
         this.friendDbStorage = friendDbStorage;
         this.recommendation = recommendation;
+        this.recommendationModel = recommendationModel;
         this.feedEventSource = feedEventSource;
+        this.likeDbStorage = likeDbStorage;
+        this.popularityIndex = popularityIndex;
+        this.trendingIndex = trendingIndex;
+        this.likedFilmsIndex = likedFilmsIndex;
+        this.friendshipGraph = friendshipGraph;
+        this.suggestionsWorkBudget = suggestionsWorkBudget;
     }
 
     // Метод для получения всех пользователей из хранилища
@@ -46,6 +84,18 @@ public class UserService {
                 .toList();
     }
 
+    // Метод возвращает страницу пользователей, следующих за пользователем с id afterId
+    public PageDto<UserDto> getUsersPage(Long afterId, Integer limit) {
+        long cursor = afterId == null ? 0 : afterId;
+        int pageSize = limit == null ? PageDto.DEFAULT_LIMIT : limit;
+        validatePage(afterId, limit);
+        // Читаем на одну строку больше, чтобы узнать, есть ли следующая страница
+        List<UserDto> users = userStorage.getUsersAfter(cursor, pageSize + 1).stream()
+                .map(UserMapper::mapToUserDto)
+                .toList();
+        return PageDto.of(users, pageSize, UserDto::getId);
+    }
+
     // Метод для получения пользователя по его идентификатору
     public UserDto getUserById(Long id) {
         User user = findUserById(id); // Получаем пользователя по id
@@ -68,23 +118,23 @@ public class UserService {
         return UserMapper.mapToUserDto(updateUser); // Возвращаем обновленного пользователя в формате UserDto
     }
 
-    // Метод для добавления пользователя в друзья
+    /* Метод для добавления пользователя в друзья. Наличие дружбы и встречной заявки проверяется в базе
+    одной транзакцией, поэтому стоимость не зависит от числа друзей у обоих пользователей. */
     public UserDto friending(Long userId, Long friendId) {
         // Получаем пользователя по userId и преобразуем его в UserDto.
         UserDto response = UserMapper.mapToUserDto(findUserById(userId));
-        findUserById(friendId); // Проверяем, существует ли пользователь с friendId.
-        // Получаем список друзей для пользователя userId и friendId.
-        List<Friendship> userList = friendDbStorage.findAllFriends(userId);
-        List<Friendship> friendList = friendDbStorage.findAllFriends(friendId);
-        // Проверяем, есть ли уже дружба между пользователями.
-        // Если да, выбрасываем исключение InternalServerException.
-        if (checkFriendshipExists(userList, userId, friendId)) {
+        Optional<Friendship> friendship;
+        try {
+            friendship = friendDbStorage.addFriendIfAbsent(userId, friendId);
+        } catch (DataIntegrityViolationException e) { // Внешний ключ не пустил строку: друга нет в базе
+            throw new NotFoundException("Пользователь с id: " + friendId + " не найден");
+        }
+        // Если дружба уже была, выбрасываем исключение InternalServerException.
+        if (friendship.isEmpty()) {
             throw new InternalServerException("Пользователь с id: " + userId + " уже добавлял пользователя с id: "
                     + friendId + " в друзья");
         }
-        boolean accept = checkAndUpdateFriendshipStatus(userId, friendId, friendList, true);
-        // Добавляем новую дружбу в базу данных и получаем объект Friendship.
-        Friendship friendship = friendDbStorage.addFriend(userId, friendId, accept);
+        friendshipGraph.refreshFriends(userId);
 
         feedEventSource.notifyFeedListeners(
                 userId,
@@ -92,12 +142,7 @@ public class UserService {
                 EventType.FRIEND,
                 Operation.ADD);
 
-        // Обновляем список друзей в ответе, добавляя нового друга.
-        userList.add(friendship);
-        response.setFriends(userList.stream()
-                .map(Friendship::getFriendId)
-                .toList()
-        );
+        response.setFriends(friendshipGraph.getFriendIds(userId)); // Список друзей уже с новым другом
         return response; // Возвращаем обновленный объект UserDto с новым списком друзей.
     }
 
@@ -105,20 +150,9 @@ public class UserService {
     public UserDto unfriending(Long userId, Long friendId) {
         // Получаем пользователя по userId и преобразуем его в UserDto.
         UserDto response = UserMapper.mapToUserDto(findUserById(userId));
-        findUserById(friendId); // Проверяем, существует ли пользователь с friendId.
-        // Получаем список друзей для пользователя userId и friendId.
-        List<Friendship> userList = friendDbStorage.findAllFriends(userId);
-        List<Friendship> friendList = friendDbStorage.findAllFriends(friendId);
-        // Проверяем, есть ли уже дружба между пользователями.
-        if (!checkFriendshipExists(userList, userId, friendId)) {
-            return response;
-        }
-        // Проверяем, добавил ли друг (friendId) пользователя (userId) в друзья.
-        // Если да, устанавливаем статус дружбы (accept = false).
-        checkAndUpdateFriendshipStatus(userId, friendId, friendList, false);
-
-        // Удаляем дружбу из базы данных и проверяем результат операции.
-        if (friendDbStorage.delete(userId, friendId)) {
+        // Удаляем дружбу одним условным запросом; встречная строка при этом становится неподтвержденной.
+        if (friendDbStorage.deleteFriend(userId, friendId)) {
+            friendshipGraph.refreshFriends(userId);
 
             feedEventSource.notifyFeedListeners(
                     userId,
@@ -128,22 +162,44 @@ public class UserService {
 
             return response;
         }
-        // Если удаление не удалось, выбрасываем исключение InternalServerException.
-        throw new InternalServerException("Не удалось удалить друга с id: " + friendId);
+        findUserById(friendId); // Удалять было нечего: проверяем, существует ли пользователь с friendId.
+        return response;
     }
 
     // Метод для получения списка друзей указанного пользователя
     public List<UserDto> getUserFriends(Long userId) {
         // Проверяем, существует ли пользователь с указанным userId.
         findUserById(userId);
-        // Получаем список друзей пользователя и преобразуем их в UserDto.
-        return listFriendshipToListUserDto(friendDbStorage.findAllFriends(userId));
+        // Получаем список друзей пользователя из графа дружбы и загружаем их одним запросом.
+        return listIdsToListUserDto(friendshipGraph.getFriendIds(userId));
+    }
+
+    // Метод возвращает страницу друзей пользователя с id больше afterId в порядке возрастания id
+    public PageDto<UserDto> getUserFriendsPage(Long userId, Long afterId, Integer limit) {
+        long cursor = afterId == null ? 0 : afterId;
+        int pageSize = limit == null ? PageDto.DEFAULT_LIMIT : limit;
+        validatePage(afterId, limit);
+        findUserById(userId);
+        // Читаем на одного друга больше, чтобы узнать, есть ли следующая страница
+        List<UserDto> friends = listIdsToListUserDto(friendshipGraph.getFriendIdsAfter(userId, cursor, pageSize + 1));
+        return PageDto.of(friends, pageSize, UserDto::getId);
     }
 
     // Метод для получения списка взаимных друзей между двумя пользователями
     public List<UserDto> listOfMutualFriends(Long userId, Long friendId) {
-        // Получаем список взаимных друзей и преобразуем их в UserDto.
-        return listFriendshipToListUserDto(friendDbStorage.findMutualFriends(userId, friendId));
+        // Взаимные друзья - пересечение отсортированных списков друзей в графе дружбы
+        return listIdsToListUserDto(friendshipGraph.getMutualFriendIds(userId, friendId));
+    }
+
+    // Метод возвращает рекомендуемых друзей: друзей друзей по убыванию числа общих друзей
+    public List<UserDto> getFriendSuggestions(Long userId, Integer limit) {
+        int count = limit == null ? DEFAULT_SUGGESTIONS : limit;
+        if (count <= 0 || count > PageDto.MAX_LIMIT) {
+            throw new BadRequestException("Некорректное количество рекомендаций: limit = " + limit +
+                    " (допустимо от 1 до " + PageDto.MAX_LIMIT + ")");
+        }
+        findUserById(userId);
+        return listIdsToListUserDto(friendshipGraph.suggestFriends(userId, count, suggestionsWorkBudget));
     }
 
     public User findUserById(Long id) {
@@ -152,11 +208,9 @@ public class UserService {
     }
 
     private UserDto createUserDtoWithFriends(User user) {
-        // Получаем друзей пользователя
-        List<Friendship> friendships = friendDbStorage.findAllFriends(user.getId());
         UserDto userDto = UserMapper.mapToUserDto(user);
-        // Добавляем друзей пользователю
-        userDto.setFriends(friendships.stream().map(Friendship::getFriendId).toList());
+        // Добавляем друзей пользователю из графа дружбы
+        userDto.setFriends(friendshipGraph.getFriendIds(user.getId()));
         return userDto;
     }
 
@@ -167,42 +221,47 @@ public class UserService {
         }
     }
 
-    private boolean checkFriendshipExists(List<Friendship> userFriends, Long userId, Long friendId) {
-        return userFriends.stream().anyMatch(friend -> friend.getFriendId().equals(friendId));
-    }
-
-    private boolean checkAndUpdateFriendshipStatus(Long userId, Long friendId, List<Friendship> friendFriends,
-                                                   boolean accept) {
-        // Проверяем, добавил ли друг (friendId) пользователя (userId) в друзья.
-        // Если да, устанавливаем нужный статус дружбы
-        if (friendFriends.stream().anyMatch(friend -> friend.getFriendId().equals(userId))) {
-            friendDbStorage.updateFriendStatus(friendId, userId, accept); // Обновляем статус дружбы в базе данных.
-        } else {
-            accept = !accept;
+    // Пользователи загружаются одним запросом и возвращаются в порядке списка id
+    private List<UserDto> listIdsToListUserDto(List<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return new ArrayList<>();
         }
-        return accept;
-    }
-
-    private List<UserDto> listFriendshipToListUserDto(List<Friendship> list) {
-        return list.stream()
-                .map(Friendship::getFriendId)
-                .map(userStorage::getUserById)
-                .flatMap(Optional::stream)
+        Map<Long, User> users = userStorage.getUsersByIds(userIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        return userIds.stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
                 .map(UserMapper::mapToUserDto)
                 .toList();
     }
 
+    private void validatePage(Long afterId, Integer limit) {
+        if ((afterId != null && afterId < 0) || (limit != null && (limit <= 0 || limit > PageDto.MAX_LIMIT))) {
+            throw new BadRequestException("Некорректные параметры страницы: afterId = " + afterId +
+                    ", limit = " + limit + " (допустимо от 1 до " + PageDto.MAX_LIMIT + ")");
+        }
+    }
+
     // Метод для удаления пользователя
     public void deleteUser(Long userId) {
         findUserById(userId); // Проверяем есть ли пользователь с таким id
+        List<Like> likes = likeDbStorage.getLikesByUserId(userId);
+        likeDbStorage.deleteLikeByUserId(userId); // Лайки удаляются вместе с уменьшением счетчиков их фильмов
         userStorage.deleteUser(userId); // Удаляем пользователя
+        recommendationModel.removeUser(userId); // Лайки пользователя удаляются каскадно, убираем их и из модели
+        likedFilmsIndex.removeUser(userId);
+        friendshipGraph.removeUser(userId); // Связи дружбы удаляются каскадно вместе с пользователем
+        popularityIndex.refreshLikes(likes.stream() // Счетчики лайков этих фильмов уменьшились
+                .map(Like::getFilmId)
+                .toList());
+        likes.forEach(like -> trendingIndex.removeLike(like.getFilmId(), like.getCreatedAt()));
     }
 
     // Метод для получения рекомендаций по фильмам
-    public List<FilmDto> getRecommendFilms(Long userId) {
+    public List<FilmDto> getRecommendFilms(Long userId, Integer limit) {
         if (userStorage.getUserById(userId).isEmpty()) {
             throw new NotFoundException("Не найден пользователь с id: " + userId);
         }
-        return recommendation.getRecommendFilms(userId);
+        return recommendation.getRecommendFilms(userId, limit);
     }
 }
\ No newline at end of file
@@ -3,20 +3,30 @@ package ru.yandex.practicum.filmorate.storage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import ru.yandex.practicum.filmorate.exception.InternalServerException;
 
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 @Slf4j
 @RequiredArgsConstructor // Аннотация Lombok, автоматически генерирующая конструктор с обязательными полями
 public class BaseStorage<T> {
+    protected static final int IN_CHUNK_SIZE = 1000; // Максимум идентификаторов в одном условии IN (...)
+    protected static final int DEFAULT_BATCH_SIZE = 500; // Строк в одном пакете JDBC по умолчанию
+
     protected final JdbcTemplate jdbc;// JdbcTemplate для выполнения SQL-запросов
     protected final RowMapper<T> mapper; // Mapper для преобразования результатов запроса в объекты типа T
     private final Class<T> entityType; // Класс сущности, используемый для создания объектов типа T
@@ -37,6 +47,39 @@ public class BaseStorage<T> {
         return jdbc.query(query, params, mapper); // Выполняем запрос и возвращаем список объектов
     }
 
+    // Метод для поиска объектов по списку идентификаторов: запрос с условием IN (%s) выполняется порциями
+    protected List<T> findManyByIds(String query, Collection<Long> ids) {
+        List<T> result = new ArrayList<>();
+        for (List<Long> chunk : partition(ids)) {
+            result.addAll(findMany(inQuery(query, chunk.size()), chunk.toArray()));
+        }
+        return result;
+    }
+
+    // Метод возвращает те идентификаторы из списка, которые есть в базе: запрос вида SELECT id ... IN (%s)
+    protected Set<Long> findIds(String query, Collection<Long> ids) {
+        Set<Long> result = new HashSet<>();
+        for (List<Long> chunk : partition(ids)) {
+            result.addAll(jdbc.queryForList(inQuery(query, chunk.size()), Long.class, chunk.toArray()));
+        }
+        return result;
+    }
+
+    // Метод подставляет в условие IN (%s) нужное количество параметров
+    protected static String inQuery(String query, int idsCount) {
+        return String.format(query, String.join(",", Collections.nCopies(idsCount, "?")));
+    }
+
+    // Метод разбивает идентификаторы на порции не больше IN_CHUNK_SIZE
+    protected static List<List<Long>> partition(Collection<Long> ids) {
+        List<Long> list = new ArrayList<>(ids);
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < list.size(); from += IN_CHUNK_SIZE) {
+            chunks.add(list.subList(from, Math.min(from + IN_CHUNK_SIZE, list.size())));
+        }
+        return chunks;
+    }
+
     // Метод для вставки нового объекта и возвращения его сгенерированного идентификатора
     protected long insert(String query, Object... params) {
         GeneratedKeyHolder keyHolder = new GeneratedKeyHolder(); // Хранитель для сгенерированного ключа
@@ -53,6 +96,40 @@ public class BaseStorage<T> {
         return Objects.requireNonNull(keyHolder.getKeyAs(Integer.class)).longValue();
     }
 
+    /* Метод для пакетной вставки: строки отправляются пакетами по DEFAULT_BATCH_SIZE через один
+    подготовленный запрос, сгенерированные идентификаторы возвращаются в порядке строк.
+    Соединение берется через JdbcTemplate, поэтому метод участвует в текущей транзакции. */
+    protected List<Long> insertBatch(String query, List<Object[]> batchArgs) {
+        if (batchArgs.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> ids = jdbc.execute((ConnectionCallback<List<Long>>) connection -> {
+            List<Long> keys = new ArrayList<>(batchArgs.size());
+            try (PreparedStatement ps = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+                for (int from = 0; from < batchArgs.size(); from += DEFAULT_BATCH_SIZE) {
+                    int to = Math.min(from + DEFAULT_BATCH_SIZE, batchArgs.size());
+                    for (Object[] args : batchArgs.subList(from, to)) {
+                        for (int idx = 0; idx < args.length; idx++) {
+                            ps.setObject(idx + 1, args[idx]);
+                        }
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                    try (ResultSet generatedKeys = ps.getGeneratedKeys()) {
+                        while (generatedKeys.next()) {
+                            keys.add(generatedKeys.getLong(1));
+                        }
+                    }
+                }
+            }
+            return keys;
+        });
+        if (ids == null || ids.size() != batchArgs.size()) {
+            throw new InternalServerException("Не удалось получить идентификаторы вставленных строк");
+        }
+        return ids;
+    }
+
     // Метод для обновления существующего объекта по заданному запросу и параметрам
     protected void update(String query, Object... params) {
         // Выполняем обновление и получаем количество обновленных строк
@@ -68,13 +145,29 @@ public class BaseStorage<T> {
         return rowsDeleted > 0; // Возвращаем true, если строки были удалены
     }
 
-    protected void insertMany(String query) {
-        int count = jdbc.update(query);
-        if (count > 0) {
-            log.info("Данные запроса " + query + " успешно сохранены");
-        } else {
-            log.info("Данные запроса " + query + " не сохранены (дублируются или другая причина)");
-        }
+    // Метод для пакетного выполнения параметризованного запроса с размером пакета по умолчанию
+    protected int batchUpdate(String query, List<Object[]> batchArgs) {
+        return batchUpdate(query, batchArgs, DEFAULT_BATCH_SIZE);
     }
 
+    /* Метод для пакетного выполнения параметризованного запроса: один запрос подготавливается один раз
+    и отправляется в базу пакетами по batchSize наборов параметров. Возвращает количество измененных строк. */
+    protected int batchUpdate(String query, List<Object[]> batchArgs, int batchSize) {
+        if (batchArgs.isEmpty()) {
+            return 0;
+        }
+        int[][] results = jdbc.batchUpdate(query, batchArgs, batchSize, (ps, args) -> {
+            for (int idx = 0; idx < args.length; idx++) {
+                ps.setObject(idx + 1, args[idx]); // Устанавливаем параметры в PreparedStatement
+            }
+        });
+        int rows = 0;
+        for (int[] batch : results) {
+            for (int count : batch) {
+                // Драйвер может не сообщить число строк (SUCCESS_NO_INFO), считаем такую команду одной строкой
+                rows += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+            }
+        }
+        return rows;
+    }
 }
\ No newline at end of file
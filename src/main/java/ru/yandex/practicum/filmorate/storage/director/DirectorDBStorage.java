@@ -7,8 +7,12 @@ import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.storage.BaseStorage;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Slf4j
@@ -25,6 +29,11 @@ public class DirectorDBStorage extends BaseStorage<Director> {
             "JOIN directors d " +
             "ON d.dir_id=df.dir_id  " +
             "WHERE df.film_id = ?";
+    private static final String SEARCH_DIR_FOR_FILMS_QUERY = "SELECT df.film_id, df.dir_id, d.dir_name " +
+            "FROM directors_films df " +
+            "JOIN directors d " +
+            "ON d.dir_id=df.dir_id  " +
+            "WHERE df.film_id IN (%s)";
 
 
     public DirectorDBStorage(JdbcTemplate jdbc, RowMapper<Director> mapper) {
@@ -82,4 +91,17 @@ public class DirectorDBStorage extends BaseStorage<Director> {
         log.info("Поиск режиссеров для фильма с id " + id);
         return findMany(SEARCH_DIR_FOR_FILM_QUERY, id);
     }
+
+    //Поиск режиссеров сразу для нескольких фильмов одним запросом: id фильма -> список режиссеров
+    public Map<Long, List<Director>> getDirectorsByFilmIds(Collection<Long> filmIds) {
+        Map<Long, List<Director>> directors = new HashMap<>();
+        log.info("Поиск режиссеров для {} фильмов", filmIds.size());
+        for (List<Long> chunk : partition(filmIds)) {
+            jdbc.query(inQuery(SEARCH_DIR_FOR_FILMS_QUERY, chunk.size()), rs -> {
+                directors.computeIfAbsent(rs.getLong("film_id"), k -> new ArrayList<>())
+                        .add(mapper.mapRow(rs, rs.getRow()));
+            }, chunk.toArray());
+        }
+        return directors;
+    }
 }
@@ -21,25 +21,30 @@ public class DirectorFilmDBStorage extends BaseStorage<Film> {
 
     private static final String DELETE_DIRECTOR_BY_FILM_QUERY =
             "DELETE FROM directors_films WHERE film_id = ?";
-    private static final String CREATE_POST_DIRECTOR_FILM = "MERGE INTO directors_films  AS df USING (VALUES %s) " + //вставка VALUES в форме (1,2),(1,3),(1,4)
-            "AS s (film_id, dir_id) ON df.film_id=s.film_id AND df.dir_id = s.dir_id " +
-            "WHEN NOT MATCHED THEN " +
-            "INSERT (film_id, dir_id) VALUES (s.film_id, s.dir_id)";
+    // Уже существующая пара (фильм, режиссер) не дублируется: MERGE по первичному ключу
+    private static final String CREATE_POST_DIRECTOR_FILM = "MERGE INTO directors_films (film_id, dir_id) " +
+            "KEY (film_id, dir_id) VALUES (?, ?)";
 
     public void createPost(Film film) {
-        List<Long> listLong = film.getDirectors().stream()
-                .map(Director::getId)
+        List<Object[]> batchArgs = film.getDirectors().stream()
+                .map(director -> new Object[]{film.getId(), director.getId()})
                 .toList();
-        StringBuilder valuesBuilder = new StringBuilder();
-        for (long idDir : listLong) {
-            if (!valuesBuilder.isEmpty()) {
-                valuesBuilder.append(", ");
-            }
-            valuesBuilder.append("(").append(film.getId()).append(", ").append(idDir).append(")");
-        }
-        String queryInsertDir = String.format(CREATE_POST_DIRECTOR_FILM, valuesBuilder);
-        insertMany(queryInsertDir);
-        log.info("Добавлена запись соответствия в таблицу (id фильма, id режиссера) " + valuesBuilder);
+        batchUpdate(CREATE_POST_DIRECTOR_FILM, batchArgs); // Один подготовленный запрос на все пары
+        log.info("Добавлены записи соответствия фильма с id {} и режиссеров {}", film.getId(),
+                film.getDirectors().stream()
+                        .map(Director::getId)
+                        .toList());
+    }
+
+    // Пакетное добавление связей с режиссерами сразу для нескольких фильмов
+    public void createPosts(List<Film> films) {
+        List<Object[]> batchArgs = films.stream()
+                .filter(film -> film.getDirectors() != null)
+                .flatMap(film -> film.getDirectors().stream()
+                        .map(director -> new Object[]{film.getId(), director.getId()}))
+                .toList();
+        int saved = batchUpdate(CREATE_POST_DIRECTOR_FILM, batchArgs);
+        log.info("Пакетно добавлено {} связей фильмов и режиссеров", saved);
     }
 
     public void deleteFilmDirector(Long id) {
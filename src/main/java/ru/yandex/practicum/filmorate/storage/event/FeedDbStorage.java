@@ -4,6 +4,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.Feed;
 import ru.yandex.practicum.filmorate.storage.BaseStorage;
 
@@ -20,7 +21,13 @@ public class FeedDbStorage extends BaseStorage<Feed> {
     private static final String INSERT_QUERY =
             "INSERT INTO events (user_id, timestamp, entity_id, event_type, operation) VALUES (?, ?, ?, ?, ?)";
     private static final String LIST_FEED_FOR_USER_ID_QUERY =
-            "SELECT event_id, user_id, timestamp, entity_id, event_type, operation FROM events WHERE user_id = ?";
+            "SELECT event_id, user_id, timestamp, entity_id, event_type, operation FROM events WHERE user_id = ? " +
+                    "ORDER BY event_id";
+    /* Страница читается по индексу (user_id, event_id DESC) от курсора назад и останавливается на LIMIT.
+    user_id в ORDER BY порядок не меняет, но без него H2 не узнает порядок индекса и сортирует всю историю */
+    private static final String LIST_FEED_PAGE_QUERY =
+            "SELECT event_id, user_id, timestamp, entity_id, event_type, operation FROM events " +
+                    "WHERE user_id = ? AND event_id < ? ORDER BY user_id, event_id DESC LIMIT ?";
 
     public void createFeed(Feed feed) {
         Long id = insert(
@@ -36,9 +43,31 @@ public class FeedDbStorage extends BaseStorage<Feed> {
                 feed.getOperation(), id, feed.getUserId(), feed.getEntityId());
     }
 
+    // Метод для пакетной записи событий одной транзакцией; id событий не читаются
+    @Transactional
+    public int createFeeds(List<Feed> feeds) {
+        List<Object[]> batchArgs = feeds.stream()
+                .map(feed -> new Object[]{
+                        feed.getUserId(),
+                        feed.getTimestamp(),
+                        feed.getEntityId(),
+                        feed.getEventType().toString(),
+                        feed.getOperation().toString()})
+                .toList();
+        int created = batchUpdate(INSERT_QUERY, batchArgs);
+        log.debug("Записано событий ленты одним пакетом: {}", created);
+        return created;
+    }
+
     public List<Feed> getListFeedForId(Long id) {
         log.info("Запрос ленты событий для пользователя с id {} ", id);
         return findMany(LIST_FEED_FOR_USER_ID_QUERY, id);
     }
 
+    // Метод возвращает не более limit событий пользователя с id меньше beforeEventId, от новых к старым
+    public List<Feed> getFeedBefore(Long userId, long beforeEventId, int limit) {
+        log.info("Запрос {} событий ленты пользователя с id {} до события {}", limit, userId, beforeEventId);
+        return findMany(LIST_FEED_PAGE_QUERY, userId, beforeEventId, limit);
+    }
+
 }
@@ -2,6 +2,7 @@ package ru.yandex.practicum.filmorate.storage.film;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.exception.BadRequestException;
@@ -11,28 +12,40 @@ import ru.yandex.practicum.filmorate.storage.BaseStorage;
 
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Slf4j // Аннотация для логирования
 @Repository // Аннотация, указывающая, что этот класс является репозиторием Spring
 public class FilmDbStorage extends BaseStorage<Film> implements FilmStorage {
     // SQL-запросы для работы с таблицей FILMS
     private static final String FIND_ALL_QUERY = "SELECT * FROM FILMS f JOIN MPA_TYPE mp ON f.mpa = mp.MPA_ID";
+    private static final String FIND_PAGE_QUERY = "SELECT * FROM FILMS f JOIN MPA_TYPE mp ON f.mpa = mp.MPA_ID " +
+            "WHERE f.film_id > ? ORDER BY f.film_id LIMIT ?";
     private static final String FIND_BY_ID_QUERY = "SELECT * FROM FILMS f JOIN MPA_TYPE mp ON f.mpa = mp.MPA_ID " +
             "WHERE film_id = ?";
+    private static final String FIND_BY_IDS_QUERY = "SELECT * FROM FILMS f JOIN MPA_TYPE mp ON f.mpa = mp.MPA_ID " +
+            "WHERE film_id IN (%s)";
     private static final String INSERT_QUERY = "INSERT INTO FILMS(film_name, description, release_date, duration, " +
             "mpa) VALUES (?, ?, ?, ?, ?)";
+    private static final String FIND_IDS_QUERY = "SELECT film_id FROM FILMS WHERE film_id IN (%s)";
     private static final String UPDATE_QUERY = "UPDATE FILMS SET film_name = ?, description = ?, release_date = ?, " +
             "duration = ?, mpa = ? WHERE film_id = ?"; //*mpa
+    // Популярность берется из счетчика FILMS.like_count, порядок совпадает с индексом (like_count DESC, film_id)
     private static final String FIND_POPULAR_LIMIT_QUERY = "SELECT f.*, mp.MPA_NAME FROM FILMS f " +
-            "LEFT JOIN LIKES l ON f.FILM_ID = l.FILM_ID " +
             "JOIN MPA_TYPE mp ON f.mpa = mp.MPA_ID " +
             "WHERE (? IS NULL OR EXISTS (SELECT 1 FROM genres_film gf WHERE gf.film_id = f.film_id AND gf.genre_id = ?)) " +
             "AND (? IS NULL OR EXTRACT(YEAR FROM f.release_date) = ?) " +
-            "GROUP BY f.FILM_ID " +
-            "ORDER BY COUNT(l.USER_ID) DESC " +
+            "ORDER BY f.like_count DESC, f.film_id " +
             "LIMIT ?;";
+    private static final String FIND_ALL_RANKS_QUERY = "SELECT film_id, like_count, " +
+            "EXTRACT(YEAR FROM release_date) AS release_year FROM FILMS";
+    private static final String FIND_LIKE_COUNTS_QUERY = "SELECT film_id, like_count FROM FILMS " +
+            "WHERE film_id IN (%s)";
     private static final String DELETE_QUERY = "DELETE FROM FILMS WHERE FILM_ID = ?";
 
     private static final String FILM_SORTED_BY_YEAR_QUERY =
@@ -45,47 +58,25 @@ public class FilmDbStorage extends BaseStorage<Film> implements FilmStorage {
                     "ORDER BY f.release_date ASC";
 
     private static final String FILM_SORTED_BY_LIKE_QUERY =
-            "SELECT film_id, film_name, description, release_date, duration, mpa, mpa_name " +
-                    "FROM( " +
-                    "SELECT f.film_id, f.film_name, f.description, f.release_date, f.duration, f.mpa, mp.mpa_name, COUNT(l.user_id) AS like_count " +
+            "SELECT f.film_id, f.film_name, f.description, f.release_date, f.duration, f.mpa, mp.mpa_name " +
                     "FROM directors_films df " +
                     "JOIN films f ON df.film_id = f.film_id " +
                     "JOIN MPA_TYPE mp ON f.mpa = mp.mpa_id " +
-                    "LEFT JOIN likes l ON f.film_id=l.film_id " +
                     "WHERE df.dir_id = ? " +
-                    "GROUP BY f.film_id, f.film_name, f.description, f.release_date, f.duration, f.mpa, mp.mpa_name " +
-                    ") AS film_likes " +
-                    "ORDER BY like_count DESC";
+                    "ORDER BY f.like_count DESC, f.film_id";
     private static final String SEARCH_FILM = """
             SELECT
                 film.film_id, film.film_name, film.description, film.release_date, film.duration, film.mpa,
                 m_type.mpa_name,
                 dir.dir_id, dir.dir_name,
-                COUNT(DISTINCT f_like.user_id) as likes_count
+                film.like_count
             FROM films AS film
             LEFT JOIN mpa_type AS m_type ON film.mpa = m_type.mpa_id
-            LEFT JOIN likes AS f_like ON film.film_id = f_like.film_id
             LEFT JOIN directors_films AS d_film ON film.film_id = d_film.film_id
             LEFT JOIN directors AS dir ON d_film.dir_id = dir.dir_id
             %s
             GROUP BY film.film_id
-            ORDER BY likes_count DESC;
-            """;
-    private static final String COMMON_USERS_FILMS = """
-            SELECT
-                film.film_id, film.film_name, film.description, film.release_date, film.duration, film.mpa,
-                m_type.mpa_name,
-                dir.dir_id, dir.dir_name,
-                COUNT(DISTINCT first_likes.user_id) as likes_count
-            FROM films AS film
-            LEFT JOIN mpa_type AS m_type ON film.mpa = m_type.mpa_id
-            LEFT JOIN directors_films AS d_film ON film.film_id = d_film.film_id
-            LEFT JOIN directors AS dir ON d_film.dir_id = dir.dir_id
-            JOIN likes AS first_likes ON film.film_id = first_likes.film_id
-            JOIN likes AS second_likes ON film.film_id = second_likes.film_id
-            WHERE first_likes.user_id = ? AND second_likes.user_id = ?
-            GROUP BY film.film_id
-            ORDER BY likes_count DESC;
+            ORDER BY film.like_count DESC, film.film_id;
             """;
 
     public FilmDbStorage(JdbcTemplate jdbc, RowMapper<Film> mapper) {
@@ -99,6 +90,13 @@ public class FilmDbStorage extends BaseStorage<Film> implements FilmStorage {
         return findMany(FIND_ALL_QUERY);
     }
 
+    // Получение страницы фильмов по курсору: чтение идет по первичному ключу, начиная сразу после afterId
+    @Override
+    public List<Film> getFilmsAfter(Long afterId, int limit) {
+        log.info("Запрос на получение {} фильмов с id больше {}", limit, afterId);
+        return findMany(FIND_PAGE_QUERY, afterId, limit);
+    }
+
     // Получение фильма по его идентификатору
     @Override
     public Optional<Film> getFilmById(Long filmId) {
@@ -106,6 +104,13 @@ public class FilmDbStorage extends BaseStorage<Film> implements FilmStorage {
         return findOne(FIND_BY_ID_QUERY, filmId);
     }
 
+    // Получение фильмов по списку идентификаторов одним запросом
+    @Override
+    public List<Film> getFilmsByIds(Collection<Long> filmIds) {
+        log.info("Запрос на получение {} фильмов по списку id", filmIds.size());
+        return findManyByIds(FIND_BY_IDS_QUERY, filmIds);
+    }
+
     // Создание нового фильма в базе данных
     @Override
     public Film createFilm(Film film) {
@@ -122,6 +127,28 @@ public class FilmDbStorage extends BaseStorage<Film> implements FilmStorage {
         return film; // Возвращаем созданный фильм
     }
 
+    // Пакетное создание фильмов одним подготовленным запросом
+    @Override
+    public List<Film> createFilms(List<Film> films) {
+        List<Object[]> batchArgs = films.stream()
+                .map(film -> new Object[]{film.getName(), film.getDescription(),
+                        Timestamp.valueOf(film.getReleaseDate().atStartOfDay()), film.getDuration(),
+                        film.getMpa().getId()})
+                .toList();
+        List<Long> ids = insertBatch(INSERT_QUERY, batchArgs);
+        for (int i = 0; i < films.size(); i++) {
+            films.get(i).setId(ids.get(i));
+        }
+        log.info("Пакетно создано {} фильмов", films.size());
+        return films;
+    }
+
+    // Получение id существующих фильмов из списка
+    @Override
+    public Set<Long> getExistingIds(Collection<Long> ids) {
+        return findIds(FIND_IDS_QUERY, ids);
+    }
+
     // Обновление информации о фильме
     @Override
     public Film updateFilm(Film film) {
@@ -146,6 +173,28 @@ public class FilmDbStorage extends BaseStorage<Film> implements FilmStorage {
         return findMany(FIND_POPULAR_LIMIT_QUERY, genreId, genreId, year, year, count);
     }
 
+    // Потоковое чтение популярности всех фильмов: список фильмов в памяти не собирается
+    @Override
+    public void forEachFilmRank(FilmRankConsumer consumer) {
+        log.info("Потоковое чтение популярности всех фильмов");
+        jdbc.query(FIND_ALL_RANKS_QUERY, (RowCallbackHandler) rs -> {
+            int year = rs.getInt("release_year");
+            consumer.accept(rs.getLong("film_id"), rs.getLong("like_count"), rs.wasNull() ? null : year);
+        });
+    }
+
+    // Получение числа лайков фильмов по списку id
+    @Override
+    public Map<Long, Long> getLikeCounts(Collection<Long> filmIds) {
+        Map<Long, Long> counts = new HashMap<>();
+        for (List<Long> chunk : partition(filmIds)) {
+            jdbc.query(inQuery(FIND_LIKE_COUNTS_QUERY, chunk.size()), (RowCallbackHandler) rs -> {
+                counts.put(rs.getLong("film_id"), rs.getLong("like_count"));
+            }, chunk.toArray());
+        }
+        return counts;
+    }
+
     // Метод для удаления фильма
     @Override
     public boolean deleteFilm(Long filmId) {
@@ -199,9 +248,4 @@ public class FilmDbStorage extends BaseStorage<Film> implements FilmStorage {
         String queryList = String.format(SEARCH_FILM, "WHERE " + String.join(" OR ", filterList));
         return findMany(queryList, params.toArray());
     }
-
-    @Override
-    public List<Film> commonFilms(Long userId, Long friendId) {
-        return findMany(COMMON_USERS_FILMS, List.of(userId, friendId).toArray());
-    }
 }
\ No newline at end of file
@@ -2,27 +2,54 @@ package ru.yandex.practicum.filmorate.storage.film;
 
 import ru.yandex.practicum.filmorate.model.Film;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 // Интерфейс FilmStorage определяет методы для работы с фильмами
 public interface FilmStorage {
 
+    // Функциональный интерфейс для потокового обхода популярности фильмов без создания объектов Film
+    @FunctionalInterface
+    interface FilmRankConsumer {
+        void accept(long filmId, long likes, Integer releaseYear);
+    }
+
     // Метод для получения всех фильмов из хранилища
     List<Film> getFilms();
 
+    // Метод для получения не более limit фильмов с id больше afterId в порядке возрастания id
+    List<Film> getFilmsAfter(Long afterId, int limit);
+
     // Метод для получения фильма по его идентификатору
     Optional<Film> getFilmById(Long filmId);
 
+    // Метод для получения фильмов по списку идентификаторов одним запросом (порядок не гарантируется)
+    List<Film> getFilmsByIds(Collection<Long> filmIds);
+
     // Метод для создания нового фильма
     Film createFilm(Film film);
 
+    // Метод для пакетного создания фильмов: устанавливает им сгенерированные id
+    List<Film> createFilms(List<Film> films);
+
+    // Метод возвращает те id из списка, для которых есть фильмы
+    Set<Long> getExistingIds(Collection<Long> ids);
+
     // Метод для обновления существующего фильма
     Film updateFilm(Film film);
 
     //Вывод самых популярных фильмов по жанру и годам.
     List<Film> getMostPopularByNumberOfLikes(Long count, Long genreId, Integer year);
 
+    // Метод передает в consumer id, число лайков и год выхода каждого фильма
+    void forEachFilmRank(FilmRankConsumer consumer);
+
+    // Метод возвращает число лайков фильмов из списка: id фильма -> число лайков
+    Map<Long, Long> getLikeCounts(Collection<Long> filmIds);
+
     //Метод для получения списка фильмов конкретного режиссера, отсортированного по годам
     List<Film> getSortedFilmsByYear(Long id);
 
@@ -33,6 +60,4 @@ public interface FilmStorage {
     boolean deleteFilm(Long filmId);
 
     List<Film> search(String query, List<String> by);
-
-    List<Film> commonFilms(Long userId, Long friendId);
 }
\ No newline at end of file
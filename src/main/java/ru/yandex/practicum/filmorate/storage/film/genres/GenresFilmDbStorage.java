@@ -2,13 +2,19 @@ package ru.yandex.practicum.filmorate.storage.film.genres;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.exception.InternalServerException;
+import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.GenresFilm;
 import ru.yandex.practicum.filmorate.storage.BaseStorage;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Slf4j // Аннотация для логирования
 @Repository // Аннотация, указывающая, что этот класс является репозиторием Spring
@@ -17,7 +23,16 @@ public class GenresFilmDbStorage extends BaseStorage<GenresFilm> {
     private static final String INSERT_QUERY = "INSERT INTO GENRES_FILM(film_id, genre_id) VALUES (?, ?)";
     private static final String FIND_BY_FILM_ID_QUERY = "SELECT * FROM GENRES_FILM gf JOIN GENRE_TYPE gt " +
             "ON gf.GENRE_ID = gt.GENRE_ID WHERE film_id = ?";
+    private static final String FIND_BY_FILM_IDS_QUERY = "SELECT * FROM GENRES_FILM gf JOIN GENRE_TYPE gt " +
+            "ON gf.GENRE_ID = gt.GENRE_ID WHERE film_id IN (%s)";
     private static final String DELETE_GENRES_BY_FILM_ID = "DELETE FROM GENRES_FILM WHERE FILM_ID = ?";
+    private static final String FIND_ALL_LINKS_QUERY = "SELECT film_id, genre_id FROM GENRES_FILM";
+
+    // Функциональный интерфейс для потокового обхода связей фильмов и жанров
+    @FunctionalInterface
+    public interface GenreLinkConsumer {
+        void accept(long filmId, long genreId);
+    }
 
     public GenresFilmDbStorage(JdbcTemplate jdbc, RowMapper<GenresFilm> mapper) {
         super(jdbc, mapper, GenresFilm.class);
@@ -31,15 +46,43 @@ public class GenresFilmDbStorage extends BaseStorage<GenresFilm> {
         return genres; // Возвращаем список жанров
     }
 
-    // Добавление жанра к фильму
-    public void addGenreToFilm(Long filmId, Long genreId) {
-        log.info("Добавление жанра с id: {} к фильму с id: {}", genreId, filmId); // Логируем добавление жанра к фильму
-        if (insert(INSERT_QUERY, filmId, genreId) > 0) {
-            log.info("Жанр с id: {} успешно добавлен к фильму с id: {}", genreId, filmId); // Логируем успешное добавление
-        } else {
-            throw new InternalServerException("Не удалось добавить жанр с id: " + genreId +
-                    " к фильму с id: " + filmId);
+    // Получение жанров сразу для нескольких фильмов одним запросом: id фильма -> список жанров
+    public Map<Long, List<Genre>> getGenresByFilmIds(Collection<Long> filmIds) {
+        Map<Long, List<Genre>> genres = new HashMap<>();
+        log.info("Запрос на получение жанров для {} фильмов", filmIds.size());
+        findManyByIds(FIND_BY_FILM_IDS_QUERY, filmIds)
+                .forEach(genresFilm -> genres.computeIfAbsent(genresFilm.getFilmId(), k -> new ArrayList<>())
+                        .add(genresFilm.getGenre()));
+        return genres;
+    }
+
+    // Потоковое чтение всех связей фильмов и жанров
+    public void forEachGenreLink(GenreLinkConsumer consumer) {
+        log.info("Потоковое чтение всех жанров фильмов");
+        jdbc.query(FIND_ALL_LINKS_QUERY, (RowCallbackHandler) rs -> {
+            consumer.accept(rs.getLong("film_id"), rs.getLong("genre_id"));
+        });
+    }
+
+    // Добавление жанров к фильму одним пакетом
+    public void addGenresToFilm(Long filmId, Collection<Long> genreIds) {
+        log.info("Добавление жанров {} к фильму с id: {}", genreIds, filmId); // Логируем добавление жанров к фильму
+        List<Object[]> batchArgs = genreIds.stream()
+                .map(genreId -> new Object[]{filmId, genreId})
+                .toList();
+        int added = batchUpdate(INSERT_QUERY, batchArgs);
+        if (added != batchArgs.size()) {
+            throw new InternalServerException("Не удалось добавить жанры " + genreIds + " к фильму с id: " + filmId);
         }
+        log.info("Жанры {} успешно добавлены к фильму с id: {}", genreIds, filmId); // Логируем успешное добавление
+    }
+
+    // Пакетное добавление связей жанров сразу для нескольких фильмов
+    public void addGenresToFilms(List<GenresFilm> links) {
+        List<Object[]> batchArgs = links.stream()
+                .map(link -> new Object[]{link.getFilmId(), link.getGenre().getId()})
+                .toList();
+        log.info("Пакетно добавлено {} связей фильмов и жанров", batchUpdate(INSERT_QUERY, batchArgs));
     }
 
     public boolean deleteGenresByFilmId(Long filmId) {
@@ -1,9 +1,12 @@
 package ru.yandex.practicum.filmorate.storage.friend;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.storage.BaseStorage;
 
@@ -14,70 +17,74 @@ import java.util.Optional;
 @Repository
 public class FriendDbStorage extends BaseStorage<Friendship> {
     // SQL-запросы для работы с таблицей FRIENDSHIP
-    private static final String INSERT_FRIEND = "INSERT INTO FRIENDSHIP(user_id, friend_id, accept) VALUES (?, ?, ?)";
-    private static final String FIND_FRIEND_BY_ID = "SELECT * FROM FRIENDSHIP WHERE USER_ID = ? AND FRIEND_ID = ?";
-    private static final String FIND_ALL_FRIEND = "SELECT * FROM FRIENDSHIP WHERE USER_ID = ?";
+    /* Дружба добавляется, только если ее еще нет, а признак подтверждения берется из встречной строки:
+    проверки идут в базе по первичному ключу, а не по спискам друзей обоих пользователей */
+    private static final String INSERT_FRIEND_IF_ABSENT = "INSERT INTO FRIENDSHIP(user_id, friend_id, accept) " +
+            "SELECT ?, ?, EXISTS(SELECT 1 FROM FRIENDSHIP WHERE USER_ID = ? AND FRIEND_ID = ?) " +
+            "WHERE NOT EXISTS(SELECT 1 FROM FRIENDSHIP WHERE USER_ID = ? AND FRIEND_ID = ?)";
     private static final String UPDATE_FRIEND_BY_ID = "UPDATE FRIENDSHIP SET ACCEPT = ? " +
             "WHERE USER_ID = ? AND FRIEND_ID = ?";
     private static final String DELETE_FRIEND = "DELETE FROM FRIENDSHIP WHERE USER_ID = ? AND FRIEND_ID = ?";
-    private static final String DELETE_FRIENDS_BY_USER_ID = "DELETE FROM FRIENDSHIP WHERE USER_ID = ? OR FRIEND_ID = ?";
-    private static final String FIND_MUTUAL_FRIENDS = "SELECT * FROM FRIENDSHIP WHERE USER_ID = ? AND FRIEND_ID " +
-            "IN (SELECT FRIEND_ID FROM FRIENDSHIP WHERE USER_ID = ?)";
+    // Два запроса вместо условия с OR: каждый удаляет строки по своему индексу
+    private static final String DELETE_FRIENDS_BY_USER_ID = "DELETE FROM FRIENDSHIP WHERE USER_ID = ?";
+    private static final String DELETE_FRIENDS_BY_FRIEND_ID = "DELETE FROM FRIENDSHIP WHERE FRIEND_ID = ?";
+    private static final String FIND_ALL_PAIRS = "SELECT USER_ID, FRIEND_ID FROM FRIENDSHIP";
+    private static final String FIND_FRIEND_IDS = "SELECT FRIEND_ID FROM FRIENDSHIP WHERE USER_ID = ?";
+
+    // Функциональный интерфейс для потоковой обработки связей дружбы без создания объектов Friendship
+    @FunctionalInterface
+    public interface FriendshipConsumer {
+        void accept(long userId, long friendId);
+    }
 
     public FriendDbStorage(JdbcTemplate jdbc, RowMapper<Friendship> mapper) {
         super(jdbc, mapper, Friendship.class);
     }
 
-    // Метод для добавления нового друга
-    public Friendship addFriend(Long userId, Long friendId, boolean accept) {
-        // Логируем добавление друга
-        log.info("Добавление друга: userId={}, friendId={}, accept={}", userId, friendId, accept);
-        Friendship friendship = Friendship.builder() // Создаем объект Friendship с указанными параметрами
+    /* Метод добавляет друга, если пользователь еще не добавлял его. Если друг раньше добавил пользователя,
+    обе строки дружбы становятся подтвержденными. Возвращает пустой Optional, если дружба уже была.
+    Если друга нет в базе, вставку отклоняет внешний ключ (DataIntegrityViolationException). */
+    @Transactional
+    public Optional<Friendship> addFriendIfAbsent(Long userId, Long friendId) {
+        log.info("Добавление друга: userId={}, friendId={}", userId, friendId); // Логируем добавление друга
+        int inserted;
+        try {
+            inserted = jdbc.update(INSERT_FRIEND_IF_ABSENT, userId, friendId, friendId, userId, userId, friendId);
+        } catch (DuplicateKeyException e) { // Ту же дружбу одновременно добавил другой запрос
+            inserted = 0;
+        }
+        if (inserted == 0) {
+            return Optional.empty();
+        }
+        // Встречная строка есть - значит, друг уже добавил пользователя и дружба подтверждена
+        boolean accept = jdbc.update(UPDATE_FRIEND_BY_ID, true, friendId, userId) > 0;
+        Friendship friendship = Friendship.builder()
                 .userId(userId)
                 .friendId(friendId)
                 .accept(accept)
                 .build();
-        // Выполняем SQL-запрос на добавление друга
-        int id = jdbc.update(
-                INSERT_FRIEND,
-                userId,
-                friendId,
-                accept
-        );
         log.info("Друг успешно добавлен: {}", friendship); // Логируем успешное добавление
-        return friendship; // Возвращаем объект дружбы
-    }
-
-    // Метод для получения всех друзей пользователя
-    public List<Friendship> findAllFriends(Long userId) {
-        log.info("Запрос всех друзей для userId={}", userId); // Логируем запрос на получение всех друзей
-        List<Friendship> friends = findMany(FIND_ALL_FRIEND, userId); // Получаем список друзей из БД
-        log.info("Найдено {} друзей для userId={}", friends.size(), userId); // Логируем количество найденных друзей
-        return friends; // Возвращаем список друзей
+        return Optional.of(friendship);
     }
 
-    // Метод для поиска конкретного друга по ID пользователя и ID друга
-    public Optional<Friendship> findFriendById(Long userId, Long friendId) {
-        log.info("Запрос друга по ID: userId={}, friendId={}", userId, friendId); // Логируем запрос друга по ID
-        return findOne(FIND_FRIEND_BY_ID, userId, friendId); // Ищем друга в базе данных и возвращаем результат
-    }
-
-    // Метод для удаления друга из списка друзей
-    public boolean delete(Long userId, Long friendId) {
+    /* Метод удаляет друга из списка друзей пользователя; встречная строка, если она есть,
+    снова становится неподтвержденной. Возвращает false, если пользователь не добавлял этого друга. */
+    @Transactional
+    public boolean deleteFriend(Long userId, Long friendId) {
         log.info("Удаление друга: userId={}, friendId={}", userId, friendId); // Логируем удаление друга
-        // Выполняем SQL-запрос на удаление записи о дружбе из БД
-        boolean result = delete(DELETE_FRIEND, userId, friendId);
-        if (result) {
-            log.info("Друг успешно удален: userId={}, friendId={}", userId, friendId); // Логируем успешное удаление
+        if (!delete(DELETE_FRIEND, userId, friendId)) {
+            return false;
         }
-        return result; // Возвращаем результат операции удаления
+        jdbc.update(UPDATE_FRIEND_BY_ID, false, friendId, userId);
+        log.info("Друг успешно удален: userId={}, friendId={}", userId, friendId); // Логируем успешное удаление
+        return true;
     }
 
     // Метод для удаления друзей по id пользователя
     public boolean deleteFriendsByUserId(Long userId) {
         log.info("Удаление друзей для userId={}", userId); // Логируем удаление друзей
         // Выполняем SQL-запрос на удаление записей о дружбе из БД
-        boolean result = delete(DELETE_FRIENDS_BY_USER_ID, userId, userId);
+        boolean result = delete(DELETE_FRIENDS_BY_USER_ID, userId) | delete(DELETE_FRIENDS_BY_FRIEND_ID, userId);
         if (result) {
             log.info("Записи о дружбе пользователя: id={}, успешно удалены", userId); // Логируем успешное удаление
             return true;
@@ -85,32 +92,14 @@ public class FriendDbStorage extends BaseStorage<Friendship> {
         return false;
     }
 
-    // Метод для обновления статуса дружбы (принят/не принят)
-    public Friendship updateFriendStatus(Long userId, Long friendId, boolean accept) {
-        // Логируем обновление статуса дружбы
-        log.info("Обновление статуса дружбы: userId={}, friendId={}, accept={}", userId, friendId, accept);
-        // Создаем объект Friendship с обновленным статусом
-        Friendship friendship = Friendship.builder()
-                .userId(userId)
-                .friendId(friendId)
-                .accept(accept)
-                .build();
-        update(UPDATE_FRIEND_BY_ID, // Выполняем SQL-запрос на обновление статуса дружбы в БД
-                accept,
-                userId,
-                friendId
-        );
-        log.info("Статус дружбы успешно обновлен: {}", friendship); // Логируем успешное обновление статуса
-        return friendship; // Возвращаем объект с обновленным статусом
+    // Метод возвращает id всех, кого пользователь добавил в друзья
+    public List<Long> getFriendIds(Long userId) {
+        return jdbc.queryForList(FIND_FRIEND_IDS, Long.class, userId);
     }
 
-    public List<Friendship> findMutualFriends(Long userId, Long friendId) {
-        // Логируем запрос на получение взаимных друзей
-        log.info("Запрос взаимных друзей: userId={}, friendId={}", userId, friendId);
-        // Выполняем SQL-запрос для поиска взаимных друзей
-        List<Friendship> mutualFriends = findMany(FIND_MUTUAL_FRIENDS, userId, friendId);
-        // Логируем количество найденных взаимных друзей
-        log.info("Найдено {} взаимных друзей между userId={} и friendId={}", mutualFriends.size(), userId, friendId);
-        return mutualFriends;  // Возвращаем список взаимных друзей
+    // Метод передает в consumer все связи дружбы по одной, не собирая их в список
+    public void forEachFriendship(FriendshipConsumer consumer) {
+        log.info("Потоковое чтение всех связей дружбы");
+        jdbc.query(FIND_ALL_PAIRS, (RowCallbackHandler) rs -> consumer.accept(rs.getLong(1), rs.getLong(2)));
     }
-}
\ No newline at end of file
+}
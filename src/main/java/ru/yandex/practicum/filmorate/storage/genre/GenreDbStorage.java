@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate.storage.genre;
 
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
@@ -7,45 +8,73 @@ import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.storage.BaseStorage;
 
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
+/* Справочник жанров заполняется миграцией V2__reference_data.sql и во время работы не меняется, поэтому хранилище
+держит его в памяти: массив, индексированный id жанра, загружается при старте и заменяется целиком в refresh().
+Чтение идет без обращений к базе и без блокировок, наружу отдаются копии, чтобы кэш нельзя было изменить. */
 @Slf4j // Аннотация для включения логирования в класс
 @Repository // Аннотация, указывающая, что класс является репозиторием Spring
 public class GenreDbStorage extends BaseStorage<Genre> {
     // SQL-запросы для работы с таблицей GENRE_TYPE
-    private static final String FIND_ALL_QUERY = "SELECT * FROM GENRE_TYPE";
-    private static final String FIND_BY_ID_QUERY = "SELECT * FROM GENRE_TYPE WHERE GENRE_ID = ?";
-    private static final String LIST_GENRE_BY_ID_QUERY = "SELECT genre_id, genre_name FROM genre_type WHERE genre_id IN (%s)";
+    private static final String FIND_ALL_QUERY = "SELECT * FROM GENRE_TYPE ORDER BY GENRE_ID";
+
+    private volatile Genre[] genresById = new Genre[0]; // Индекс - id жанра, пропуски в нумерации - null
 
     public GenreDbStorage(JdbcTemplate jdbc, RowMapper<Genre> mapper) {
         super(jdbc, mapper, Genre.class);
     }
 
+    // Метод загружает справочник жанров из базы и атомарно подменяет кэш
+    @PostConstruct
+    public void refresh() {
+        List<Genre> genres = jdbc.query(FIND_ALL_QUERY, mapper); // Запрос без параметров
+        int maxId = genres.isEmpty() ? 0 : Math.toIntExact(genres.getLast().getId());
+        Genre[] byId = new Genre[maxId + 1];
+        genres.forEach(genre -> byId[Math.toIntExact(genre.getId())] = genre);
+        genresById = byId;
+        log.info("Загружен справочник жанров: {} записей", genres.size());
+    }
+
     // Метод для получения списка всех жанров
     public List<Genre> getAllGenres() {
-        log.info("Запрос всех жанров"); // Логируем запрос на получение всех жанров
-        List<Genre> genres = findMany(FIND_ALL_QUERY); // Выполняем SQL-запрос для получения всех жанров
-        log.info("Найдено {} жанров", genres.size()); // Логируем количество найденных жанров
-        return genres; // Возвращаем список найденных жанров
+        List<Genre> genres = new ArrayList<>();
+        for (Genre genre : genresById) {
+            if (genre != null) {
+                genres.add(copy(genre));
+            }
+        }
+        return genres; // Возвращаем список жанров по возрастанию id
     }
 
     // Метод для получения жанра по его ID
     public Optional<Genre> getGenreById(Long id) {
-        log.info("Запрос жанра с ID: {}", id); // Логируем запрос на получение жанра по ID
-        return findOne(FIND_BY_ID_QUERY, id); // Выполняем SQL-запрос и возвращаем результат в виде Optional
+        Genre[] byId = genresById;
+        if (id == null || id < 0 || id >= byId.length || byId[id.intValue()] == null) {
+            return Optional.empty();
+        }
+        return Optional.of(copy(byId[id.intValue()]));
     }
 
+    // Метод возвращает существующие жанры из списка (с названиями) по возрастанию id, несуществующие пропускаются
     public List<Genre> getListGenre(List<Genre> list) {
-        String placeholders = String.join(",", Collections.nCopies(list.size(), "?"));
-        String listGenreQuery = String.format(LIST_GENRE_BY_ID_QUERY, placeholders);
-        List<Long> listLong = list.stream()
+        return list.stream()
                 .map(Genre::getId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .sorted()
+                .map(this::getGenreById)
+                .flatMap(Optional::stream)
                 .toList();
-        Object[] params = listLong.toArray(new Object[0]);
-        return findMany(listGenreQuery, params);
     }
 
-
-}
\ No newline at end of file
+    private static Genre copy(Genre genre) {
+        return Genre.builder()
+                .id(genre.getId())
+                .name(genre.getName())
+                .build();
+    }
+}
@@ -1,35 +1,109 @@
 package ru.yandex.practicum.filmorate.storage.like;
 
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.exception.InternalServerException;
 import ru.yandex.practicum.filmorate.model.Like;
 import ru.yandex.practicum.filmorate.storage.BaseStorage;
+import ru.yandex.practicum.filmorate.storage.like.LikeWriteBuffer.PendingLike;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Slf4j // Аннотация для включения логирования в класс
 @Repository // Аннотация, указывающая, что класс является репозиторием Spring
 public class LikeDbStorage extends BaseStorage<Like> {
     // SQL-запросы для работы с таблицей LIKES
-    private static final String INSERT_QUERY = "INSERT INTO LIKES(film_id, user_id) VALUES (?, ?)";
+    /* Лайк вставляется, только если пользователь еще не лайкал этот фильм. Время лайка передается явно:
+    то же время получает индекс трендов, а при отложенной записи лайк попадает в базу позже, чем был поставлен */
+    private static final String INSERT_AT_IF_ABSENT_QUERY = "INSERT INTO LIKES(film_id, user_id, created_at) " +
+            "SELECT ?, ?, ? WHERE NOT EXISTS (SELECT 1 FROM LIKES WHERE film_id = ? AND user_id = ?)";
+    // Счетчик лайков фильма хранится в FILMS.like_count и меняется в той же транзакции, что и LIKES
+    private static final String CHANGE_COUNT_QUERY = "UPDATE FILMS SET like_count = like_count + ? WHERE film_id = ?";
+    private static final String RECOUNT_QUERY = "UPDATE FILMS f SET like_count = " +
+            "(SELECT COUNT(*) FROM LIKES l WHERE l.film_id = f.film_id) WHERE f.film_id IN (%s)";
+    private static final String RECONCILE_QUERY = "UPDATE FILMS f SET like_count = " +
+            "(SELECT COUNT(*) FROM LIKES l WHERE l.film_id = f.film_id) " +
+            "WHERE f.like_count <> (SELECT COUNT(*) FROM LIKES l WHERE l.film_id = f.film_id)";
+    private static final String RELEASE_USER_LIKES_QUERY = "UPDATE FILMS f SET like_count = like_count - " +
+            "(SELECT COUNT(*) FROM LIKES l WHERE l.film_id = f.film_id AND l.user_id = ?) " +
+            "WHERE f.film_id IN (SELECT film_id FROM LIKES WHERE user_id = ?)";
     private static final String FIND_BY_FILM_ID_QUERY = "SELECT * FROM LIKES WHERE film_id = ?";
     private static final String FIND_BY_USER_ID_QUERY = "SELECT * FROM LIKES WHERE user_id = ?";
     private static final String DELETE_QUERY = "DELETE FROM LIKES WHERE film_id = ? AND user_id = ?";
     private static final String DELETE_QUERY_BY_FILM_ID = "DELETE FROM LIKES WHERE film_id = ?";
     private static final String DELETE_QUERY_BY_USER_ID = "DELETE FROM LIKES WHERE user_id = ?";
-    private static final String FIND_ALL_QUERY = "SELECT * FROM LIKES";
+    private static final String FIND_ALL_PAIRS_QUERY = "SELECT user_id, film_id FROM LIKES";
+    private static final String FIND_SINCE_QUERY = "SELECT film_id, created_at FROM LIKES WHERE created_at >= ?";
     private static final String SEARCH_POST_LIKE = "SELECT * FROM LIKES WHERE film_id =? AND user_id = ?";
 
-    public LikeDbStorage(JdbcTemplate jdbc, RowMapper<Like> mapper) {
+    private final int fetchSize; // Сколько строк драйвер забирает из базы за одно обращение при потоковом чтении
+    private final int batchSize; // Размер пакета при отложенной записи
+    private final TransactionTemplate writeTransaction; // Пакет пишется в своей транзакции, независимо от вызывающей
+    private final LikeWriteBuffer writeBuffer; // Буфер отложенной записи; null, если лайки пишутся сразу
+
+    // Функциональный интерфейс для потоковой обработки лайков без создания объектов Like
+    @FunctionalInterface
+    public interface LikeConsumer {
+        void accept(long userId, long filmId);
+    }
+
+    // Функциональный интерфейс для потоковой обработки времени лайков фильмов
+    @FunctionalInterface
+    public interface TimedLikeConsumer {
+        void accept(long filmId, Instant createdAt);
+    }
+
+    /* При включенной отложенной записи (write-behind) лайки и их отмены копятся в памяти и пишутся
+    в базу пакетами - по таймеру (LikeWriteBehindFlusher) или когда набралось batchSize пар.
+    Гарантии этого режима слабее: операции, принятые после последнего сброса, теряются при аварийной
+    остановке (при штатной остановке буфер сбрасывается), а FILMS.like_count и запросы, читающие LIKES
+    напрямую, отстают от ответов API не больше чем на интервал сброса. Методы этого класса, читающие
+    лайки, сначала сбрасывают буфер, поэтому через них изменения видны сразу. */
+    public LikeDbStorage(JdbcTemplate jdbc, RowMapper<Like> mapper, PlatformTransactionManager transactionManager,
+                         @Value("${filmorate.likes.fetch-size:1000}") int fetchSize,
+                         @Value("${filmorate.likes.write-behind.enabled:false}") boolean writeBehind,
+                         @Value("${filmorate.likes.write-behind.batch-size:500}") int batchSize,
+                         @Value("${filmorate.likes.write-behind.max-pending:50000}") int maxPending) {
         super(jdbc, mapper, Like.class);
+        this.fetchSize = fetchSize;
+        this.batchSize = batchSize;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.writeBuffer = writeBehind
+                ? new LikeWriteBuffer(this::loadCreatedAt, this::writePending, batchSize, maxPending)
+                : null;
+        if (writeBehind) {
+            log.info("Включена отложенная запись лайков, размер пакета: {}", batchSize);
+        }
     }
 
     // Метод для получения списка лайков по ID фильма
     public List<Like> getLikesByFilmId(Long id) {
+        flushPendingLikes();
         log.info("Получение лайков для фильма с ID: {}", id); // Логируем получение лайков
         List<Like> likes = findMany(FIND_BY_FILM_ID_QUERY, id); // Выполняем запрос к БД
         log.info("Найдено {} лайков для фильма с ID: {}", likes.size(), id); // Логируем количество найденных лайков
@@ -38,6 +112,7 @@ public class LikeDbStorage extends BaseStorage<Like> {
 
     // Метод для получения списка лайков по ID пользователя
     public List<Like> getLikesByUserId(Long id) {
+        flushPendingLikes();
         log.info("Получение лайков для пользователя с ID: {}", id); // Логируем получение лайков
         List<Like> likes = findMany(FIND_BY_USER_ID_QUERY, id); // Выполняем запрос к БД
         // Логируем количество найденных лайков
@@ -45,47 +120,150 @@ public class LikeDbStorage extends BaseStorage<Like> {
         return likes; // Возвращаем список лайков
     }
 
-    // Метод для получения всех лайков
-    public List<Like> getAllLikes() {
-        log.info("Получения списка всех лайков");
-        List<Like> likes = findMany(FIND_ALL_QUERY); // Выполняем запрос к БД
-        log.info("Найдено {} лайков", likes.size());
-        return likes;
+    /* Метод передает все лайки в consumer по одному, читая таблицу однонаправленным курсором порциями
+    по fetchSize строк. Список лайков в памяти не собирается, поэтому расход памяти не зависит от размера таблицы. */
+    public void forEachLike(LikeConsumer consumer) {
+        flushPendingLikes();
+        log.info("Потоковое чтение всех лайков, размер порции: {}", fetchSize);
+        long[] count = new long[1];
+        jdbc.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(FIND_ALL_PAIRS_QUERY,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            consumer.accept(rs.getLong(1), rs.getLong(2));
+            count[0]++;
+        });
+        log.info("Прочитано {} лайков", count[0]);
     }
 
-    // Метод для добавления лайка к фильму
-    public Like addLikeToFilm(Long filmId, Long userId) {
+    // Метод передает в consumer фильм и время каждого лайка, поставленного не раньше since
+    public void forEachLikeSince(Instant since, TimedLikeConsumer consumer) {
+        flushPendingLikes();
+        log.info("Потоковое чтение лайков начиная с {}", since);
+        jdbc.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(FIND_SINCE_QUERY,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            ps.setTimestamp(1, Timestamp.from(since));
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(rs.getLong("film_id"), rs.getTimestamp("created_at")
+                .toInstant()));
+    }
+
+    /* Метод для добавления лайка к фильму. Повторный лайк ничего не меняет; счетчик лайков фильма
+    увеличивается в той же транзакции, только если строка действительно вставлена.
+    Возвращает true, если лайк добавлен, и false, если он уже был. */
+    @Transactional
+    public boolean addLikeToFilm(Long filmId, Long userId, Instant createdAt) {
         // Логируем добавление лайка
         log.info("Добавление лайка для фильма с ID: {} от пользователя с ID: {}", filmId, userId);
-        long id = insert(INSERT_QUERY, filmId, userId); // Выполняем вставку в БД
-        if (id > 0) { // Проверяем успешность добавления
-            // Логируем успешное добавление
+        if (writeBuffer != null) {
+            boolean added = writeBuffer.add(filmId, userId, createdAt);
+            flushIfFull();
+            return added;
+        }
+        int inserted;
+        try {
+            inserted = jdbc.update(INSERT_AT_IF_ABSENT_QUERY, filmId, userId, Timestamp.from(createdAt), filmId,
+                    userId);
+        } catch (DuplicateKeyException e) { // Тот же лайк одновременно поставил другой запрос
+            inserted = 0;
+        }
+        if (inserted > 0) {
+            jdbc.update(CHANGE_COUNT_QUERY, inserted, filmId);
             log.info("Лайк успешно добавлен для фильма с ID: {} от пользователя с ID: {}", filmId, userId);
-            return Like.builder() // Возвращаем новый объект Like
-                    .filmId(filmId)
-                    .userId(userId)
-                    .build();
+        } else {
+            log.info("Пользователь с ID: {} уже лайкал фильм с ID: {}", userId, filmId);
+        }
+        return inserted > 0;
+    }
+
+    /* Метод для пакетного добавления лайков; повторные лайки не дублируются, счетчики пересчитываются.
+    Возвращает только действительно вставленные лайки, уже существовавшие в результат не попадают. */
+    @Transactional
+    public List<Like> addLikes(List<Like> likes) {
+        flushPendingLikes();
+        int[][] counts = jdbc.batchUpdate(INSERT_AT_IF_ABSENT_QUERY, likes, DEFAULT_BATCH_SIZE, (ps, like) -> {
+            ps.setLong(1, like.getFilmId());
+            ps.setLong(2, like.getUserId());
+            ps.setTimestamp(3, Timestamp.from(like.getCreatedAt()));
+            ps.setLong(4, like.getFilmId());
+            ps.setLong(5, like.getUserId());
+        });
+        List<Like> inserted = new ArrayList<>();
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                // Драйвер может не сообщить число строк (SUCCESS_NO_INFO), считаем такой лайк вставленным
+                if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                    inserted.add(likes.get(index));
+                }
+                index++;
+            }
+        }
+        Set<Long> filmIds = inserted.stream()
+                .map(Like::getFilmId)
+                .collect(Collectors.toSet());
+        for (List<Long> chunk : partition(filmIds)) {
+            jdbc.update(inQuery(RECOUNT_QUERY, chunk.size()), chunk.toArray());
         }
-        throw new InternalServerException("Лайк не добавлен"); // Исключение в случае ошибки добавления
+        log.info("Пакетно добавлено {} лайков из {}", inserted.size(), likes.size());
+        return inserted;
     }
 
-    // Метод для удаления лайка от фильма
-    public void deleteLike(Long filmId, Long userId) {
+    /* Метод для удаления лайка от фильма вместе с уменьшением счетчика лайков фильма.
+    Возвращает удаленный лайк со временем его добавления. */
+    @Transactional
+    public Like deleteLike(Long filmId, Long userId) {
         // Логируем удаление лайка
         log.info("Удаление лайка для фильма с ID: {} от пользователя с ID: {}", filmId, userId);
-        if (delete(DELETE_QUERY, filmId, userId)) { // Выполняем удаление из БД
-            // Логируем успешное удаление
-            log.info("Лайк успешно удален для фильма с ID: {} от пользователя с ID: {}", filmId, userId);
-        } else {
+        if (writeBuffer != null) {
+            Optional<Instant> createdAt = writeBuffer.remove(filmId, userId);
+            if (createdAt.isPresent()) {
+                flushIfFull();
+                return Like.builder()
+                        .filmId(filmId)
+                        .userId(userId)
+                        .createdAt(createdAt.get())
+                        .build();
+            }
             throw new InternalServerException("Не удалось удалить лайк для фильма с ID: " + filmId +
                     " от пользователя с ID: " + userId);
         }
+        Optional<Like> like = findMany(SEARCH_POST_LIKE, filmId, userId).stream()
+                .findFirst();
+        int deleted = like.isEmpty() ? 0 : jdbc.update(DELETE_QUERY, filmId, userId); // Выполняем удаление из БД
+        if (deleted > 0) {
+            jdbc.update(CHANGE_COUNT_QUERY, -deleted, filmId);
+            // Логируем успешное удаление
+            log.info("Лайк успешно удален для фильма с ID: {} от пользователя с ID: {}", filmId, userId);
+            return like.get();
+        }
+        throw new InternalServerException("Не удалось удалить лайк для фильма с ID: " + filmId +
+                " от пользователя с ID: " + userId);
+    }
+
+    /* Метод сверяет счетчики лайков фильмов с таблицей LIKES и исправляет расхождения
+    (например, после ручных правок базы). Возвращает количество исправленных фильмов. */
+    @Transactional
+    public int reconcileLikeCounts() {
+        flushPendingLikes();
+        int fixed = jdbc.update(RECONCILE_QUERY);
+        if (fixed > 0) {
+            log.warn("Исправлены счетчики лайков у {} фильмов", fixed);
+        }
+        return fixed;
     }
 
+    @Transactional
     public void deleteLikeByFilmId(Long filmId) {
+        flushPendingLikes();
         // Логируем удаление лайка
         log.info("Удаление лайков для фильма с ID: {}", filmId);
         if (delete(DELETE_QUERY_BY_FILM_ID, filmId)) { // Выполняем удаление из БД
+            jdbc.update(inQuery(RECOUNT_QUERY, 1), filmId);
             // Логируем успешное удаление
             log.info("Лайки успешно удалены для фильма с ID: {}", filmId);
         } else {
@@ -93,19 +271,126 @@ public class LikeDbStorage extends BaseStorage<Like> {
         }
     }
 
+    /* Метод удаляет все лайки пользователя вместе с уменьшением счетчиков лайков его фильмов.
+    Пользователь без лайков ошибкой не считается: метод вызывается перед удалением любого пользователя. */
+    @Transactional
     public void deleteLikeByUserId(Long userId) {
+        flushPendingLikes();
         // Логируем удаление лайка
         log.info("Удаление лайков для пользователя с ID: {}", userId);
+        jdbc.update(RELEASE_USER_LIKES_QUERY, userId, userId);
         if (delete(DELETE_QUERY_BY_USER_ID, userId)) { // Выполняем удаление из БД
             // Логируем успешное удаление
             log.info("Лайки успешно удалены для пользователя с ID: {}", userId);
         } else {
-            throw new InternalServerException("Не удалось удалить лайки для пользователя с ID: ");
+            log.info("У пользователя с ID: {} нет лайков", userId);
         }
     }
     //метод для проверки наличия лайка в таблице
 
     public Optional<Like> searchLikeByUserIdFilmId(Long filmId, Long userId) {
+        flushPendingLikes();
         return findOne(SEARCH_POST_LIKE, filmId, userId);
     }
+
+    /* Метод записывает в базу все лайки из буфера отложенной записи; без буфера ничего не делает.
+    Ошибка записи пробрасывается, а несохраненные операции остаются в буфере до следующего сброса. */
+    public void flushPendingLikes() {
+        if (writeBuffer != null) {
+            writeBuffer.flush();
+        }
+    }
+
+    // Метод возвращает число пар (фильм, пользователь), ожидающих записи в базу
+    public int getPendingLikesCount() {
+        return writeBuffer == null ? 0 : writeBuffer.size();
+    }
+
+    // При штатной остановке приложения буфер записывается в базу
+    @PreDestroy
+    public void close() {
+        if (writeBuffer != null && writeBuffer.size() > 0) {
+            log.info("Запись {} отложенных лайков перед остановкой", writeBuffer.size());
+            flushPendingLikes();
+        }
+    }
+
+    // Заполненный буфер сбрасывает тот, кто его заполнил; ошибка не отменяет уже принятую операцию
+    private void flushIfFull() {
+        if (!writeBuffer.isFull()) {
+            return;
+        }
+        try {
+            writeBuffer.flush();
+        } catch (DataAccessException e) {
+            log.error("Не удалось записать буфер лайков, повтор при следующем сбросе: {}", e.getMessage());
+        }
+    }
+
+    private Optional<Instant> loadCreatedAt(long filmId, long userId) {
+        return findOne(SEARCH_POST_LIKE, filmId, userId).map(Like::getCreatedAt);
+    }
+
+    /* Запись пакета одной транзакцией. Если пакет нарушает ограничения базы (фильм или пользователь
+    удален, пока лайк ждал записи), пары пишутся по одной, а нарушающие ограничения пропускаются. */
+    private void writePending(Collection<PendingLike> likes) {
+        try {
+            writeTransaction.executeWithoutResult(status -> writeBatch(likes));
+            log.debug("Записан пакет из {} отложенных лайков", likes.size());
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Пакет лайков нарушает ограничения базы, запись по одному: {}", e.getMessage());
+            for (PendingLike like : likes) {
+                try {
+                    writeTransaction.executeWithoutResult(status -> writeBatch(List.of(like)));
+                } catch (DataIntegrityViolationException skipped) {
+                    log.warn("Отложенный лайк фильма с ID: {} от пользователя с ID: {} пропущен: {}",
+                            like.filmId(), like.userId(), skipped.getMessage());
+                }
+            }
+        }
+    }
+
+    /* Лайки, которых не должно остаться, удаляются, новые вставляются; повторно поставленный лайк
+    удаляется и вставляется с новым временем. Счетчики фильмов меняются на число действительно
+    измененных строк: пока пара ждала записи, строку могли удалить вместе с пользователем. */
+    private void writeBatch(Collection<PendingLike> likes) {
+        List<PendingLike> deletes = likes.stream()
+                .filter(PendingLike::inDb)
+                .toList();
+        List<PendingLike> inserts = likes.stream()
+                .filter(PendingLike::present)
+                .toList();
+        Map<Long, Integer> deltas = new HashMap<>();
+        if (!deletes.isEmpty()) {
+            countChanges(deltas, deletes, -1, jdbc.batchUpdate(DELETE_QUERY, deletes, batchSize, (ps, like) -> {
+                ps.setLong(1, like.filmId());
+                ps.setLong(2, like.userId());
+            }));
+        }
+        if (!inserts.isEmpty()) {
+            countChanges(deltas, inserts, 1, jdbc.batchUpdate(INSERT_AT_IF_ABSENT_QUERY, inserts, batchSize,
+                    (ps, like) -> {
+                        ps.setLong(1, like.filmId());
+                        ps.setLong(2, like.userId());
+                        ps.setTimestamp(3, Timestamp.from(like.createdAt()));
+                        ps.setLong(4, like.filmId());
+                        ps.setLong(5, like.userId());
+                    }));
+        }
+        List<Object[]> changes = deltas.entrySet().stream()
+                .filter(entry -> entry.getValue() != 0)
+                .map(entry -> new Object[]{entry.getValue(), entry.getKey()})
+                .toList();
+        batchUpdate(CHANGE_COUNT_QUERY, changes, batchSize);
+    }
+
+    private static void countChanges(Map<Long, Integer> deltas, List<PendingLike> likes, int sign, int[][] results) {
+        int idx = 0;
+        for (int[] batch : results) {
+            for (int count : batch) {
+                int rows = count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+                deltas.merge(likes.get(idx++).filmId(), sign * rows, Integer::sum);
+            }
+        }
+    }
 }
\ No newline at end of file
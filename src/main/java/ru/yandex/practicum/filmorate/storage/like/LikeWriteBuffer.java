@@ -0,0 +1,191 @@
+package ru.yandex.practicum.filmorate.storage.like;
+
+import ru.yandex.practicum.filmorate.exception.InternalServerException;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/* Буфер отложенной записи лайков (write-behind). Лайки и их отмены копятся в памяти и схлопываются
+по паре (фильм, пользователь): лайк, отмененный до сброса, в базу не попадает вовсе, повторный лайк
+отклоняется без записи. Накопленное пишется в базу одним пакетом, когда в буфере набралось batchSize
+пар или по таймеру. Пока пакет пишется, новые операции копятся в следующем.
+Если запись не удалась, пакет остается в буфере и пишется повторно; когда в буфере maxPending пар,
+новые операции отклоняются, чтобы недоступная база не съела всю память. Класс потокобезопасен. */
+class LikeWriteBuffer {
+
+    // Чтение состояния лайка из базы: время лайка или пусто, если лайка нет
+    @FunctionalInterface
+    interface LikeLoader {
+        Optional<Instant> load(long filmId, long userId);
+    }
+
+    // Запись пакета в базу; исключение оставляет пакет в буфере для повторной записи
+    @FunctionalInterface
+    interface LikeWriter {
+        void write(Collection<PendingLike> likes);
+    }
+
+    private final LikeLoader loader;
+    private final LikeWriter writer;
+    private final int batchSize;
+    private final int maxPending;
+
+    private final ReentrantLock lock = new ReentrantLock(); // Защищает pending, flushing и flushes
+    private final Object flushLock = new Object(); // Пакет пишет только один поток
+    private Map<Key, PendingLike> pending = new LinkedHashMap<>();
+    private Map<Key, PendingLike> flushing = Map.of(); // Пакет, который сейчас пишется в базу
+    private long flushes; // Число записанных пакетов: по нему видно, что база изменилась во время чтения
+
+    LikeWriteBuffer(LikeLoader loader, LikeWriter writer, int batchSize, int maxPending) {
+        if (batchSize <= 0 || maxPending < batchSize) {
+            throw new IllegalArgumentException("Некорректные размеры буфера лайков: " + batchSize + ", " + maxPending);
+        }
+        this.loader = loader;
+        this.writer = writer;
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+    }
+
+    /* Метод ставит лайк в очередь на запись. Возвращает true, если лайк добавлен,
+    и false, если он уже есть в базе или в буфере. */
+    boolean add(long filmId, long userId, Instant createdAt) {
+        PendingLike state = lockState(new Key(filmId, userId));
+        try {
+            if (state.present()) {
+                return false;
+            }
+            put(new PendingLike(filmId, userId, state.inDb(), true, createdAt));
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /* Метод ставит в очередь отмену лайка. Возвращает время отмененного лайка
+    или пусто, если лайка нет ни в базе, ни в буфере. */
+    Optional<Instant> remove(long filmId, long userId) {
+        PendingLike state = lockState(new Key(filmId, userId));
+        try {
+            if (!state.present()) {
+                return Optional.empty();
+            }
+            put(new PendingLike(filmId, userId, state.inDb(), false, null));
+            return Optional.of(state.createdAt());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Буфер набрал пакет и его пора сбросить
+    boolean isFull() {
+        lock.lock();
+        try {
+            return pending.size() >= batchSize;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Число пар (фильм, пользователь), ожидающих записи, включая пакет, который пишется сейчас
+    int size() {
+        lock.lock();
+        try {
+            return pending.size() + flushing.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /* Метод пишет в базу все, что накопилось к моменту вызова: сначала пакет, не записанный в прошлый раз,
+    затем текущий буфер. Поток, пришедший во время записи, ждет ее окончания - так заполненный буфер
+    притормаживает тех, кто его наполняет. Ошибка записи пробрасывается, пакет остается в буфере. */
+    void flush() {
+        synchronized (flushLock) {
+            if (!flushing.isEmpty()) {
+                writeFlushing();
+            }
+            lock.lock();
+            try {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                flushing = pending;
+                pending = new LinkedHashMap<>();
+            } finally {
+                lock.unlock();
+            }
+            writeFlushing();
+        }
+    }
+
+    private void writeFlushing() {
+        writer.write(flushing.values()); // Пакет не меняется, пока его пишут, поэтому читается без блокировки
+        lock.lock();
+        try {
+            flushing = Map.of();
+            flushes++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /* Метод возвращает текущее состояние лайка и оставляет блокировку захваченной,
+    чтобы вызывающий изменил состояние атомарно. База читается без блокировки; если за это время
+    записан пакет или пару изменил другой поток, чтение повторяется. */
+    private PendingLike lockState(Key key) {
+        while (true) {
+            lock.lock();
+            PendingLike state = known(key);
+            if (state != null) {
+                return state;
+            }
+            long version = flushes;
+            lock.unlock();
+            Optional<Instant> stored = loader.load(key.filmId(), key.userId());
+            lock.lock();
+            if (version == flushes && known(key) == null) {
+                return new PendingLike(key.filmId(), key.userId(), stored.isPresent(), stored.isPresent(),
+                        stored.orElse(null));
+            }
+            lock.unlock();
+        }
+    }
+
+    // Состояние из буфера или из пишущегося пакета: после его записи в базе будет именно оно
+    private PendingLike known(Key key) {
+        PendingLike state = pending.get(key);
+        if (state != null) {
+            return state;
+        }
+        PendingLike written = flushing.get(key);
+        if (written != null) {
+            return new PendingLike(written.filmId(), written.userId(), written.present(), written.present(),
+                    written.createdAt());
+        }
+        return null;
+    }
+
+    private void put(PendingLike like) {
+        Key key = new Key(like.filmId(), like.userId());
+        if (!like.inDb() && !like.present()) {
+            pending.remove(key); // Лайк поставлен и отменен до записи: в базе менять нечего
+            return;
+        }
+        if (!pending.containsKey(key) && pending.size() >= maxPending) {
+            throw new InternalServerException("Буфер лайков переполнен: база не успевает принимать записи");
+        }
+        pending.put(key, like);
+    }
+
+    private record Key(long filmId, long userId) {
+    }
+
+    /* Ожидающая записи пара (фильм, пользователь): inDb - есть ли лайк в базе сейчас,
+    present - должен ли он быть там после записи, createdAt - время лайка. */
+    record PendingLike(long filmId, long userId, boolean inDb, boolean present, Instant createdAt) {
+    }
+}
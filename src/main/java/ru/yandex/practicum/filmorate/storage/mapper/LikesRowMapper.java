@@ -6,6 +6,7 @@ import ru.yandex.practicum.filmorate.model.Like;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 
 @Component // Аннотация, указывающая, что класс является компонентом Spring и будет управляться контейнером Spring
 public class LikesRowMapper implements RowMapper<Like> {
@@ -13,9 +14,11 @@ public class LikesRowMapper implements RowMapper<Like> {
     @Override
     public Like mapRow(ResultSet rs, int rowNum) throws SQLException {
         // Создаем и возвращаем объект Like, заполняя его поля значениями из ResultSet
+        Timestamp createdAt = rs.getTimestamp("created_at");
         return Like.builder()
                 .filmId(rs.getLong("film_id"))
                 .userId(rs.getLong("user_id"))
+                .createdAt(createdAt == null ? null : createdAt.toInstant())
                 .build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,133 @@
+package ru.yandex.practicum.filmorate.storage.migration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/* Версионные миграции схемы. Скрипты db/migration/V<версия>__<описание>.sql применяются по возрастанию версии,
+каждый - один раз и в своей транзакции; примененные версии и контрольные суммы скриптов хранятся
+в таблице schema_history. Изменение уже примененного скрипта останавливает запуск приложения:
+исправления схемы оформляются новой миграцией. Миграции выполняются до создания бинов,
+работающих с базой через JdbcTemplate (см. SchemaMigratorDetector). */
+@Slf4j
+@Component
+public class SchemaMigrator implements InitializingBean {
+
+    private static final String LOCATION = "classpath:db/migration/V*__*.sql";
+    private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+
+    private static final String CREATE_HISTORY_QUERY = "CREATE TABLE IF NOT EXISTS schema_history (" +
+            "version INTEGER PRIMARY KEY, description VARCHAR NOT NULL, checksum BIGINT NOT NULL, " +
+            "installed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL)";
+    private static final String FIND_APPLIED_QUERY = "SELECT version, checksum FROM schema_history";
+    private static final String INSERT_HISTORY_QUERY = "INSERT INTO schema_history(version, description, checksum) " +
+            "VALUES (?, ?, ?)";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transactionTemplate;
+    private final ResourcePatternResolver resolver;
+
+    public SchemaMigrator(DataSource dataSource, ResourceLoader resourceLoader) {
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.resolver = new PathMatchingResourcePatternResolver(resourceLoader);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        migrate();
+    }
+
+    // Метод применяет к базе все еще не примененные миграции и возвращает их количество
+    public int migrate() {
+        jdbc.execute(CREATE_HISTORY_QUERY);
+        Map<Integer, Long> applied = new HashMap<>();
+        jdbc.query(FIND_APPLIED_QUERY, rs -> {
+            applied.put(rs.getInt("version"), rs.getLong("checksum"));
+        });
+        int count = 0;
+        for (Migration migration : findMigrations()) {
+            Long checksum = applied.get(migration.version());
+            if (checksum == null) {
+                apply(migration);
+                count++;
+            } else if (checksum != migration.checksum()) {
+                throw new IllegalStateException("Примененная миграция V" + migration.version() + " была изменена: "
+                        + migration.script().getFilename());
+            }
+        }
+        log.info("Схема базы данных актуальна, применено миграций: {}, всего версий: {}", count,
+                applied.size() + count);
+        return count;
+    }
+
+    private void apply(Migration migration) {
+        log.info("Применение миграции V{}: {}", migration.version(), migration.description());
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbc.execute((ConnectionCallback<Void>) connection -> {
+                ScriptUtils.executeSqlScript(connection, new EncodedResource(migration.script(),
+                        StandardCharsets.UTF_8));
+                return null;
+            });
+            jdbc.update(INSERT_HISTORY_QUERY, migration.version(), migration.description(), migration.checksum());
+        });
+    }
+
+    private List<Migration> findMigrations() {
+        List<Migration> migrations = new ArrayList<>();
+        try {
+            for (Resource script : resolver.getResources(LOCATION)) {
+                Matcher matcher = FILE_NAME.matcher(script.getFilename());
+                if (!matcher.matches()) {
+                    throw new IllegalStateException("Неверное имя файла миграции: " + script.getFilename());
+                }
+                migrations.add(new Migration(Integer.parseInt(matcher.group(1)),
+                        matcher.group(2).replace('_', ' '), script, checksum(script)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка чтения миграций схемы", e);
+        }
+        migrations.sort(Comparator.comparingInt(Migration::version));
+        for (int i = 1; i < migrations.size(); i++) {
+            if (migrations.get(i).version() == migrations.get(i - 1).version()) {
+                throw new IllegalStateException("Две миграции с версией " + migrations.get(i).version());
+            }
+        }
+        return migrations;
+    }
+
+    private static long checksum(Resource script) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream in = script.getInputStream()) {
+            crc.update(in.readAllBytes());
+        }
+        return crc.getValue();
+    }
+
+    private record Migration(int version, String description, Resource script, long checksum) {
+    }
+}
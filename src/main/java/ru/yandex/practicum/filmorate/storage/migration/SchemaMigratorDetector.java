@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.storage.migration;
+
+import org.springframework.boot.sql.init.dependency.AbstractBeansOfTypeDatabaseInitializerDetector;
+
+import java.util.Set;
+
+/* Сообщает Spring Boot, что SchemaMigrator инициализирует базу: бины, зависящие от инициализации базы
+(JdbcTemplate и все хранилища), создаются только после применения миграций.
+Регистрируется в META-INF/spring.factories. */
+public class SchemaMigratorDetector extends AbstractBeansOfTypeDatabaseInitializerDetector {
+
+    @Override
+    protected Set<Class<?>> getDatabaseInitializerBeanTypes() {
+        return Set.of(SchemaMigrator.class);
+    }
+}
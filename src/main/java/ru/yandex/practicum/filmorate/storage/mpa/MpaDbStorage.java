@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate.storage.mpa;
 
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
@@ -7,31 +8,59 @@ import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.storage.BaseStorage;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
+/* Справочник рейтингов MPA, как и жанры, неизменен во время работы и хранится в памяти:
+массив по id загружается при старте, refresh() перечитывает таблицу, наружу отдаются копии. */
 @Slf4j // Аннотация для автоматической генерации логгера
 @Repository // Аннотация, указывающая, что класс является репозиторием
 public class MpaDbStorage extends BaseStorage<Mpa> {
     // SQL-запросы для работы с таблицей MPA_TYPE
     private static final String FIND_ALL_QUERY = "SELECT * FROM MPA_TYPE ORDER BY MPA_ID";
-    private static final String FIND_BY_ID_QUERY = "SELECT * FROM MPA_TYPE WHERE MPA_ID = ?";
+
+    private volatile Mpa[] mpaById = new Mpa[0]; // Индекс - id рейтинга, пропуски в нумерации - null
 
     public MpaDbStorage(JdbcTemplate jdbc, RowMapper<Mpa> mapper) {
         super(jdbc, mapper, Mpa.class);
     }
 
+    // Метод загружает справочник MPA из базы и атомарно подменяет кэш
+    @PostConstruct
+    public void refresh() {
+        List<Mpa> mpaList = findMany(FIND_ALL_QUERY);
+        int maxId = mpaList.isEmpty() ? 0 : Math.toIntExact(mpaList.getLast().getId());
+        Mpa[] byId = new Mpa[maxId + 1];
+        mpaList.forEach(mpa -> byId[Math.toIntExact(mpa.getId())] = mpa);
+        mpaById = byId;
+        log.info("Загружен справочник MPA: {} записей", mpaList.size());
+    }
+
     // Метод для получения всех MPA
     public List<Mpa> getAllMpa() {
-        log.info("Запрос на получение всех MPA"); // Логируем запрос на получение всех MPA
-        List<Mpa> mpaList = findMany(FIND_ALL_QUERY); // Выполняем запрос и получаем список MPA
-        log.info("Получено {} MPA", mpaList.size()); // Логируем количество полученных MPA
-        return mpaList; // Возвращаем список MPA
+        List<Mpa> mpaList = new ArrayList<>();
+        for (Mpa mpa : mpaById) {
+            if (mpa != null) {
+                mpaList.add(copy(mpa));
+            }
+        }
+        return mpaList; // Возвращаем список MPA по возрастанию id
     }
 
     // Метод для получения MPA по ID
     public Optional<Mpa> getMpaById(Long id) {
-        log.info("Запрос на получение MPA с id: {}", id); // Логируем запрос на получение MPA по ID
-        return findOne(FIND_BY_ID_QUERY, id); // Выполняем запрос и возвращаем результат в виде Optional
+        Mpa[] byId = mpaById;
+        if (id == null || id < 0 || id >= byId.length || byId[id.intValue()] == null) {
+            return Optional.empty();
+        }
+        return Optional.of(copy(byId[id.intValue()]));
+    }
+
+    private static Mpa copy(Mpa mpa) {
+        return Mpa.builder()
+                .id(mpa.getId())
+                .name(mpa.getName())
+                .build();
     }
-}
\ No newline at end of file
+}
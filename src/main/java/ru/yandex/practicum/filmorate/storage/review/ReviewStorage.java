@@ -28,33 +28,24 @@ public class ReviewStorage extends BaseStorage<Review> implements ReviewReposito
             "INSERT INTO reviews (content, is_positive, film_id, user_id) " +
                     "VALUES (?, ?, ?, ?);";
 
+    // Полезность считается одним проходом по оценкам отзыва; условие WHERE стоит до группировки,
+    // поэтому отзывы фильма и отзыв по id читаются по индексам, а не агрегируются по всей таблице
     private static final String SQL_GET_REVIEW_BASE =
-            "SELECT pos.review_id, pos.content, pos.film_id, pos.user_id, pos.is_positive, (pos.positive - neg.negative)" +
-                    " AS useful FROM " +
-                    "(SELECT r.review_id, r.content, r.film_id, r.user_id, r.is_positive, COUNT(pos.review_id) " +
-                    "AS positive FROM REVIEWS r " +
-                    "LEFT JOIN " +
-                    "(SELECT rl.review_id, rl.is_useful FROM REVIEWS_LIKES rl " +
-                    "WHERE rl.IS_USEFUL = TRUE) pos " +
-                    "ON r.REVIEW_ID = pos.review_id " +
-                    "GROUP BY r.review_id) pos " +
-                    "JOIN " +
-                    "(SELECT r.review_id, r.content, r.film_id, r.user_id, r.is_positive, COUNT(neg.review_id) AS negative FROM REVIEWS r " +
-                    "LEFT JOIN " +
-                    "(SELECT rl.review_id, rl.is_useful FROM REVIEWS_LIKES rl " +
-                    "WHERE rl.IS_USEFUL = FALSE) neg " +
-                    "ON r.REVIEW_ID = neg.review_id " +
-                    "GROUP BY r.review_id) neg " +
-                    "ON pos.review_id = neg.review_id ";
+            "SELECT r.review_id, r.content, r.film_id, r.user_id, r.is_positive, " +
+                    "COUNT(CASE WHEN rl.is_useful THEN 1 END) - COUNT(CASE WHEN NOT rl.is_useful THEN 1 END) " +
+                    "AS useful FROM REVIEWS r " +
+                    "LEFT JOIN REVIEWS_LIKES rl ON r.review_id = rl.review_id ";
+
+    private static final String SQL_GROUP_BY_REVIEW = "GROUP BY r.review_id ORDER BY useful DESC, r.review_id ";
 
     private static final String SQL_GET_REVIEW_BY_IDS = SQL_GET_REVIEW_BASE +
-            "WHERE pos.review_id IN (?) ORDER BY useful DESC;";
+            "WHERE r.review_id = ? " + SQL_GROUP_BY_REVIEW;
 
     private static final String SQL_GET_ALL_REVIEWS_LIMIT = SQL_GET_REVIEW_BASE +
-            "ORDER BY useful DESC LIMIT ?";
+            SQL_GROUP_BY_REVIEW + "LIMIT ?";
 
-    private static final String SQL_GET_REVIEW_BY_FILM_IDS_LIMIT = SQL_GET_REVIEW_BASE
-            + "WHERE pos.film_id = ? ORDER BY useful DESC LIMIT ?";
+    private static final String SQL_GET_REVIEW_BY_FILM_IDS_LIMIT = SQL_GET_REVIEW_BASE +
+            "WHERE r.film_id = ? " + SQL_GROUP_BY_REVIEW + "LIMIT ?";
 
     private static final String SQL_DELETE_REVIEW_BY_ID =
             "DELETE FROM reviews WHERE review_id = ?";
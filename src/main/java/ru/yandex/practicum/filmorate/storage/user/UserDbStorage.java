@@ -9,19 +9,24 @@ import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.BaseStorage;
 
 import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Slf4j // Аннотация для автоматического создания логгера
 @Repository // Аннотация, указывающая, что класс является репозиторием
 public class UserDbStorage extends BaseStorage<User> implements UserStorage {
     // SQL-запросы для работы с таблицей USERS
     private static final String FIND_ALL_QUERY = "SELECT * FROM USERS";
+    private static final String FIND_PAGE_QUERY = "SELECT * FROM USERS WHERE user_id > ? ORDER BY user_id LIMIT ?";
     private static final String FIND_BY_ID_QUERY = "SELECT * FROM USERS WHERE user_id = ?";
+    private static final String FIND_BY_IDS_QUERY = "SELECT * FROM USERS WHERE user_id IN (%s)";
     private static final String INSERT_QUERY = "INSERT INTO USERS(login, email, name, birthday)" +
             "VALUES (?, ?, ?, ?)";
     private static final String UPDATE_QUERY = "UPDATE USERS SET login = ?, email = ?, name = ?, birthday = ?" +
             " WHERE user_id = ?";
+    private static final String FIND_IDS_QUERY = "SELECT user_id FROM USERS WHERE user_id IN (%s)";
     private static final String DELETE_QUERY = "DELETE FROM USERS WHERE USER_ID = ?";
 
     public UserDbStorage(JdbcTemplate jdbc, RowMapper<User> mapper) {
@@ -37,6 +42,13 @@ public class UserDbStorage extends BaseStorage<User> implements UserStorage {
         return users;
     }
 
+    // Метод для получения страницы пользователей по курсору: чтение идет по первичному ключу после afterId
+    @Override
+    public List<User> getUsersAfter(Long afterId, int limit) {
+        log.info("Запрос на получение {} пользователей с id больше {}", limit, afterId);
+        return findMany(FIND_PAGE_QUERY, afterId, limit);
+    }
+
     // Метод для получения пользователя по id
     @Override
     public Optional<User> getUserById(Long userId) {
@@ -45,6 +57,13 @@ public class UserDbStorage extends BaseStorage<User> implements UserStorage {
         return findOne(FIND_BY_ID_QUERY, userId); // Получаем пользователя по его ID
     }
 
+    // Метод для получения пользователей по списку id: один запрос на каждую тысячу id, порядок не гарантирован
+    @Override
+    public List<User> getUsersByIds(Collection<Long> ids) {
+        log.info("Запрос на получение {} пользователей по списку id", ids.size());
+        return findManyByIds(FIND_BY_IDS_QUERY, ids);
+    }
+
     // Метод для создания пользователя
     @Override
     public User userCreate(User user) {
@@ -61,6 +80,27 @@ public class UserDbStorage extends BaseStorage<User> implements UserStorage {
         return user; // Возвращаем созданного пользователя
     }
 
+    // Метод для пакетного создания пользователей одним подготовленным запросом
+    @Override
+    public List<User> createUsers(List<User> users) {
+        List<Object[]> batchArgs = users.stream()
+                .map(user -> new Object[]{user.getLogin(), user.getEmail(), user.getName(),
+                        Timestamp.valueOf(user.getBirthday().atStartOfDay())})
+                .toList();
+        List<Long> ids = insertBatch(INSERT_QUERY, batchArgs);
+        for (int i = 0; i < users.size(); i++) {
+            users.get(i).setId(ids.get(i));
+        }
+        log.info("Пакетно создано {} пользователей", users.size());
+        return users;
+    }
+
+    // Метод возвращает id существующих пользователей из списка
+    @Override
+    public Set<Long> getExistingIds(Collection<Long> ids) {
+        return findIds(FIND_IDS_QUERY, ids);
+    }
+
     // Метод для обновления пользователя
     @Override
     public User userUpdate(User user) {
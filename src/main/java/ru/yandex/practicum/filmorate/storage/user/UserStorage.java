@@ -2,8 +2,10 @@ package ru.yandex.practicum.filmorate.storage.user;
 
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 // Интерфейс для хранения и управления пользователями
 public interface UserStorage {
@@ -11,12 +13,24 @@ public interface UserStorage {
     // Метод для получения всех пользователей из хранилища
     List<User> getUsers();
 
+    // Метод для получения не более limit пользователей с id больше afterId в порядке возрастания id
+    List<User> getUsersAfter(Long afterId, int limit);
+
     // Метод для получения пользователя по его идентификатору
     Optional<User> getUserById(Long id);
 
+    // Метод для получения пользователей по списку идентификаторов; отсутствующие id пропускаются
+    List<User> getUsersByIds(Collection<Long> ids);
+
     // Метод для создания нового пользователя
     User userCreate(User user);
 
+    // Метод для пакетного создания пользователей: устанавливает им сгенерированные id
+    List<User> createUsers(List<User> users);
+
+    // Метод возвращает те id из списка, для которых есть пользователи
+    Set<Long> getExistingIds(Collection<Long> ids);
+
     // Метод для обновления информации о существующем пользователе
     User userUpdate(User user);
 
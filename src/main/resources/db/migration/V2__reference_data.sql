@@ -1,3 +1,5 @@
+-- Справочники рейтингов MPA и жанров (прежний data.sql)
+
 MERGE INTO mpa_type AS mt
 USING (VALUES
     ('G'),
@@ -21,4 +23,4 @@ USING (VALUES
 ) AS source(genre_name)
 ON gt.genre_name = source.genre_name
 WHEN NOT MATCHED THEN
-    INSERT (genre_name) VALUES (source.genre_name);
\ No newline at end of file
+    INSERT (genre_name) VALUES (source.genre_name);
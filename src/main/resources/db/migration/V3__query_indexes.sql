@@ -0,0 +1,18 @@
+-- Индексы под запросы хранилищ. H2 сам индексирует колонки внешних ключей, но одноколоночные индексы
+-- не покрывают запросы по паре колонок и обход связей фильма в порядке id; QueryPlanTest проверяет,
+-- что запросы из пакета storage не читают эти таблицы целиком
+
+-- Лайк пользователя фильму может быть только один: дубликаты, если они успели появиться, удаляются,
+-- а счетчики лайков пересчитываются
+DELETE FROM likes l
+WHERE EXISTS (SELECT 1 FROM likes d WHERE d.film_id = l.film_id AND d.user_id = l.user_id AND d.like_id < l.like_id);
+UPDATE films f SET like_count = (SELECT COUNT(*) FROM likes l WHERE l.film_id = f.film_id)
+WHERE f.like_count <> (SELECT COUNT(*) FROM likes l WHERE l.film_id = f.film_id);
+CREATE UNIQUE INDEX IF NOT EXISTS uq_likes_film_user ON likes (film_id, user_id);
+CREATE INDEX IF NOT EXISTS idx_likes_user_film ON likes (user_id, film_id);
+
+CREATE INDEX IF NOT EXISTS idx_genres_film_film ON genres_film (film_id, genre_id);
+CREATE INDEX IF NOT EXISTS idx_directors_films_film ON directors_films (film_id, dir_id);
+CREATE INDEX IF NOT EXISTS idx_friendship_friend ON friendship (friend_id, user_id);
+CREATE INDEX IF NOT EXISTS idx_events_user ON events (user_id);
+-- Отзывы фильма ищутся по уникальному индексу unique_film_user (film_id, user_id), отдельный не нужен
@@ -0,0 +1,5 @@
+-- Лента пользователя читается страницами от новых событий к старым, начиная с курсора beforeEventId.
+-- Индекс (user_id, event_id DESC) отдает события пользователя уже в нужном порядке, поэтому чтение страницы
+-- останавливается на LIMIT и не зависит от длины истории. Индекс только по user_id он заменяет
+CREATE INDEX IF NOT EXISTS idx_events_user_event ON events (user_id, event_id DESC);
+DROP INDEX IF EXISTS idx_events_user;
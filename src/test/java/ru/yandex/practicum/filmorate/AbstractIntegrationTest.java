@@ -0,0 +1,95 @@
+package ru.yandex.practicum.filmorate;
+
+import org.mockito.Mockito;
+import org.mockito.invocation.Invocation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import ru.yandex.practicum.filmorate.eventHanding.FeedNotificationService;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.film.FilmService;
+import ru.yandex.practicum.filmorate.service.user.UserService;
+
+import java.time.LocalDate;
+
+/* Общая основа интеграционных тестов сервисов и хранилищ: все они работают в одном контексте Spring
+и на одной базе. База отделена от базы тестов контроллеров, которые рассчитывают на пользователя и фильм
+с id 1. Данные между тестами не очищаются, поэтому каждый тест создает свои записи и не рассчитывает
+на пустые таблицы. */
+@SpringBootTest(properties = {"spring.profiles.active=test",
+        "spring.datasource.url=jdbc:h2:mem:integration;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"})
+public abstract class AbstractIntegrationTest {
+
+    @SpyBean // Шпион над JdbcTemplate, через который работают все хранилища: по нему считаются запросы
+    protected JdbcTemplate jdbc;
+
+    @Autowired
+    protected UserService userService;
+
+    @Autowired
+    protected FilmService filmService;
+
+    @Autowired
+    private FeedNotificationService feedNotificationService;
+
+    protected Long createUser(String login) {
+        return userService.userCreate(User.builder()
+                .email(login + "@mail.ru")
+                .login(login)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build()).getId();
+    }
+
+    protected Long createFilm(String name) {
+        return filmService.createFilm(Film.builder()
+                .name(name)
+                .description("Описание")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .mpa(Mpa.builder().id(1L).build())
+                .build()).getId();
+    }
+
+    protected int likeCount(Long filmId) {
+        return jdbc.queryForObject("SELECT like_count FROM films WHERE film_id = ?", Integer.class, filmId);
+    }
+
+    // Метод сбрасывает счетчики шпиона; события ленты предыдущих действий дописываются заранее, чтобы их
+    // запись в потоке ленты не попала в подсчет
+    protected void clearInvocations() {
+        feedNotificationService.flush();
+        Mockito.clearInvocations(jdbc);
+    }
+
+    // Каждый SELECT JdbcTemplate в итоге выполняет через query(PreparedStatementCreator, ..., ResultSetExtractor)
+    protected long countQueries(Runnable action) {
+        clearInvocations();
+        action.run();
+        return Mockito.mockingDetails(jdbc).getInvocations().stream()
+                .filter(invocation -> invocation.getMethod().getName().equals("query"))
+                .map(Invocation::getArguments)
+                .filter(args -> args.length == 3 && args[0] instanceof PreparedStatementCreator)
+                .count();
+    }
+
+    /* Запросы и изменения: каждый update(sql, args...) JdbcTemplate выполняет
+    через update(sql, PreparedStatementSetter) */
+    protected long countStatements(Runnable action) {
+        long[] updates = new long[1];
+        long queries = countQueries(() -> {
+            action.run();
+            updates[0] = Mockito.mockingDetails(jdbc).getInvocations().stream()
+                    .filter(invocation -> invocation.getMethod().getName().equals("update"))
+                    .map(Invocation::getRawArguments)
+                    .filter(args -> args.length == 2 && args[0] instanceof String
+                            && args[1] instanceof PreparedStatementSetter)
+                    .count();
+        });
+        return queries + updates[0];
+    }
+}
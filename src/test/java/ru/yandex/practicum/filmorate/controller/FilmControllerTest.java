@@ -10,6 +10,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.model.User;
@@ -18,6 +19,7 @@ import ru.yandex.practicum.filmorate.service.film.FilmService;
 import java.text.SimpleDateFormat;
 import java.time.LocalDate;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -213,6 +215,21 @@ class FilmControllerTest {
                 .andExpect(jsonPath("$.likes").value(1));
     }
 
+    @Test
+    void shouldCountRepeatedLikeInStatsOnce() throws Exception {
+        createUser();
+        createFilm();
+        Long userId = jdbc.queryForObject("SELECT MAX(user_id) FROM users", Long.class);
+        Long filmId = jdbc.queryForObject("SELECT MAX(film_id) FROM films", Long.class);
+        for (int i = 0; i < 3; i++) { // Повторный лайк ничего не меняет и в статистику не попадает
+            this.mockMvc.perform(put("/films/" + filmId + "/like/" + userId))
+                    .andExpect(status().isOk());
+        }
+        this.mockMvc.perform(get("/stats/films/likes").param("count", "1000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[?(@.filmId == " + filmId + ")].count").value(1));
+    }
+
     @Test
     void shouldReturnInvalidRequestWhenAddLikeWrongFilmId() throws Exception {
         createUser();
@@ -307,4 +324,19 @@ class FilmControllerTest {
                         .content(mapper.writeValueAsString(film)))
                 .andExpect(status().isOk());
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldExportAllFilmsAsNdjson() throws Exception {
+        int filmsCount = filmService.getFilms().size();
+        MvcResult result = this.mockMvc.perform(get("/films/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = this.mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        assertEquals(filmsCount, body.lines().count()); // Один фильм - одна строка
+    }
+}
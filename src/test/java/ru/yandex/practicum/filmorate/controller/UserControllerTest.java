@@ -2,6 +2,7 @@ package ru.yandex.practicum.filmorate.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.jayway.jsonpath.JsonPath;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,11 +13,20 @@ import org.springframework.http.MediaType;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.jdbc.JdbcTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import ru.yandex.practicum.filmorate.dto.page.PageDto;
+import ru.yandex.practicum.filmorate.dto.user.UserDto;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.user.UserService;
 
 import java.text.SimpleDateFormat;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -309,6 +319,86 @@ class UserControllerTest {
                 .andExpect(jsonPath("[0].friends").isArray());
     }
 
+    @Test
+    void shouldWalkAllUsersByPages() throws Exception {
+        createTwoUsers();
+        List<Long> expected = userService.getUsers().stream()
+                .map(UserDto::getId)
+                .toList();
+        List<Long> walked = new ArrayList<>();
+        String cursor = "0";
+        while (cursor != null) {
+            MvcResult result = this.mockMvc.perform(get("/users")
+                            .param("afterId", cursor)
+                            .param("limit", "1"))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            UserDto[] page = mapper.readValue(result.getResponse().getContentAsString(), UserDto[].class);
+            Arrays.stream(page).forEach(user -> walked.add(user.getId()));
+            cursor = result.getResponse().getHeader(PageDto.NEXT_CURSOR_HEADER);
+        }
+        assertEquals(expected, walked);
+    }
+
+    @Test
+    void shouldReturnInvalidRequestWhenPageLimitInvalid() throws Exception {
+        this.mockMvc.perform(get("/users").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturnInvalidRequestWhenFriendSuggestionsForUnknownIdOrInvalidLimit() throws Exception {
+        this.mockMvc.perform(get("/users/999/friends/suggestions"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("Пользователь с id: 999 не найден"));
+        this.mockMvc.perform(get("/users/1/friends/suggestions").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldShowFriendEventInFeedRightAfterRequest() throws Exception {
+        createTwoUsers();
+        this.mockMvc.perform(delete("/users/1/friends/2"));
+        this.mockMvc.perform(put("/users/1/friends/2"))
+                .andExpect(status().isOk());
+        // Событие пишется в базу асинхронно, но чтение ленты дожидается уже принятых событий
+        this.mockMvc.perform(get("/users/1/feed"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.eventType == 'FRIEND' && @.operation == 'ADD' && @.entityId == 2)]")
+                        .isNotEmpty());
+    }
+
+    @Test
+    void shouldWalkFeedBackwardsByPages() throws Exception {
+        createTwoUsers();
+        for (int i = 0; i < 3; i++) { // Каждое добавление и удаление друга - событие в ленте пользователя 1
+            this.mockMvc.perform(delete("/users/1/friends/2"));
+            this.mockMvc.perform(put("/users/1/friends/2"));
+        }
+        List<Integer> expected = JsonPath.read(this.mockMvc.perform(get("/users/1/feed"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), "$[*].eventId");
+        List<Integer> walked = new ArrayList<>();
+        String cursor = null;
+        do {
+            MockHttpServletRequestBuilder request = get("/users/1/feed").param("limit", "2");
+            if (cursor != null) { // Первая страница - самые новые события
+                request.param("beforeEventId", cursor);
+            }
+            MvcResult result = this.mockMvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andReturn();
+            List<Integer> page = JsonPath.read(result.getResponse().getContentAsString(), "$[*].eventId");
+            walked.addAll(0, page); // Страницы идут от новых событий к старым, внутри страницы - по возрастанию
+            cursor = result.getResponse().getHeader(PageDto.NEXT_CURSOR_HEADER);
+        } while (cursor != null);
+        assertEquals(expected, walked);
+        assertEquals(expected.stream().sorted().toList(), expected, "Лента упорядочена по id события");
+
+        this.mockMvc.perform(get("/users/1/feed").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
     void createTwoUsers() throws Exception {
         User user = User.builder()
                 .login("test")
@@ -0,0 +1,141 @@
+package ru.yandex.practicum.filmorate.eventHanding;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.dto.stats.FeedPipelineStatsDto;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.Feed;
+import ru.yandex.practicum.filmorate.model.Operation;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FeedEventQueueTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final List<Long> written = Collections.synchronizedList(new ArrayList<>()); // entityId записанных
+    private final CountDownLatch writing = new CountDownLatch(1); // Поток записи взял первый пакет
+    private final CountDownLatch release = new CountDownLatch(1); // Разрешение закончить запись
+    private FeedEventQueue queue;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        queue.close(TIMEOUT);
+    }
+
+    @Test
+    void shouldWriteEventsInOrderAndWaitForThemOnFlush() {
+        queue = new FeedEventQueue(this::record, 100, 10, FeedBackpressure.BLOCK, TIMEOUT);
+        queue.start();
+        release.countDown();
+        LongStream.rangeClosed(1, 25).forEach(id -> queue.add(feed(id)));
+
+        assertTrue(queue.flush(TIMEOUT));
+        assertEquals(LongStream.rangeClosed(1, 25).boxed().toList(), written);
+        FeedPipelineStatsDto stats = queue.getStats();
+        assertEquals(25, stats.getEnqueued());
+        assertEquals(25, stats.getWritten());
+        assertEquals(0, stats.getQueueDepth());
+        assertTrue(stats.getBatches() >= 3, "Пакеты не больше batchSize");
+    }
+
+    @Test
+    void shouldDropEventsWhenQueueIsFullAndPolicyIsDrop() throws InterruptedException {
+        queue = new FeedEventQueue(this::recordWhenReleased, 2, 2, FeedBackpressure.DROP, TIMEOUT);
+        queue.start();
+        queue.add(feed(1));
+        assertTrue(writing.await(5, TimeUnit.SECONDS)); // Событие 1 пишется, очередь пуста
+        queue.add(feed(2));
+        queue.add(feed(3));
+        queue.add(feed(4)); // Очередь заполнена
+
+        release.countDown();
+        assertTrue(queue.flush(TIMEOUT));
+        assertEquals(List.of(1L, 2L, 3L), written);
+        assertEquals(1, queue.getStats().getDropped());
+    }
+
+    @Test
+    void shouldDropEventWithoutFailingWhenQueueStaysFullAndPolicyIsBlock() throws InterruptedException {
+        queue = new FeedEventQueue(this::recordWhenReleased, 2, 2, FeedBackpressure.BLOCK, Duration.ofMillis(50));
+        queue.start();
+        queue.add(feed(1));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        queue.add(feed(2));
+        queue.add(feed(3));
+
+        queue.add(feed(4)); // Изменение уже зафиксировано: запрос не должен получить ошибку
+        assertEquals(1, queue.getStats().getDropped());
+        assertFalse(queue.flush(Duration.ofMillis(50)), "Запись еще не разрешена");
+
+        release.countDown();
+        assertTrue(queue.flush(TIMEOUT));
+        assertEquals(List.of(1L, 2L, 3L), written);
+    }
+
+    @Test
+    void shouldDrainQueueOnCloseAndDropLaterEvents() throws InterruptedException {
+        queue = new FeedEventQueue(this::recordWhenReleased, 100, 10, FeedBackpressure.BLOCK, TIMEOUT);
+        queue.start();
+        LongStream.rangeClosed(1, 30).forEach(id -> queue.add(feed(id)));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+        release.countDown();
+        assertTrue(queue.close(TIMEOUT));
+        assertEquals(30, written.size());
+        queue.add(feed(31));
+        assertEquals(30, written.size());
+        assertEquals(1, queue.getStats().getDropped());
+    }
+
+    @Test
+    void shouldCountEventsAsFailedAfterRetries() {
+        queue = new FeedEventQueue(feeds -> {
+            throw new IllegalStateException("База недоступна");
+        }, 10, 10, FeedBackpressure.BLOCK, TIMEOUT);
+        queue.start();
+        queue.add(feed(1));
+
+        assertTrue(queue.flush(TIMEOUT));
+        assertEquals(1, queue.getStats().getFailed());
+        assertEquals(0, queue.getStats().getWritten());
+    }
+
+    private int record(List<Feed> feeds) {
+        feeds.forEach(feed -> written.add(feed.getEntityId()));
+        return feeds.size();
+    }
+
+    private int recordWhenReleased(List<Feed> feeds) {
+        writing.countDown();
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return record(feeds);
+    }
+
+    private static Feed feed(long entityId) {
+        return Feed.builder()
+                .userId(1L)
+                .timestamp(Timestamp.from(Instant.now()))
+                .entityId(entityId)
+                .eventType(EventType.LIKE)
+                .operation(Operation.ADD)
+                .build();
+    }
+}
@@ -0,0 +1,136 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.storage.like.LikeDbStorage;
+
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.mockito.Mockito.mock;
+
+/* Бенчмарк модели рекомендаций на синтетических лайках. Запускается только явно:
+mvn test -Dtest=RecommendationBenchmarkTest -Dbenchmark=true */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class RecommendationBenchmarkTest {
+
+    private static final int USERS = 5_000;
+    private static final int FILMS = 2_000;
+    private static final int LIKES_PER_USER = 40;
+
+    @Test
+    void compareSparseMatrixWithHashMapVersion() {
+        List<Like> likes = generateLikes();
+        Map<Long, Map<Long, Integer>> data = new HashMap<>();
+        for (Like like : likes) {
+            data.computeIfAbsent(like.getUserId(), k -> new HashMap<>()).put(like.getFilmId(), 1);
+        }
+
+        long before = usedMemory();
+        long start = System.nanoTime();
+        Map<Long, Map<Long, Double>> diff = new HashMap<>();
+        Map<Long, Map<Long, Integer>> freq = new HashMap<>();
+        computeDifferencesWithHashMaps(data, diff, freq);
+        long hashMapTime = System.nanoTime() - start;
+        long hashMapMemory = usedMemory() - before;
+        long cells = freq.values().stream().mapToLong(Map::size).sum();
+        Reference.reachabilityFence(diff); // Иначе JIT может счесть карту мертвой до замера памяти
+        diff = null; // Освобождаем HashMap-версию перед замером второй
+        freq = null;
+
+        before = usedMemory();
+        start = System.nanoTime();
+        SparseCooccurrenceMatrix matrix = new SparseCooccurrenceMatrix();
+        for (Map<Long, Integer> userLike : data.values()) {
+            for (Map.Entry<Long, Integer> entry1 : userLike.entrySet()) {
+                for (Map.Entry<Long, Integer> entry2 : userLike.entrySet()) {
+                    matrix.add(entry1.getKey().intValue(), entry2.getKey().intValue(),
+                            entry1.getValue() - entry2.getValue(), 1);
+                }
+            }
+        }
+        long matrixTime = System.nanoTime() - start;
+        long matrixMemory = usedMemory() - before;
+        Reference.reachabilityFence(matrix);
+
+        System.out.printf("Пар фильмов: %d (в матрице %d)%n", cells, matrix.cellCount());
+        System.out.printf("HashMap:       построение %6d мс, память %6d КБ%n",
+                hashMapTime / 1_000_000, hashMapMemory >> 10);
+        System.out.printf("Sparse matrix: построение %6d мс, память %6d КБ%n",
+                matrixTime / 1_000_000, matrixMemory >> 10);
+
+        // Полное построение модели из лайков, включая группировку по пользователям
+        LikeDbStorage likeDbStorage = mock(LikeDbStorage.class);
+        RecommendationModelTest.stubLikes(likeDbStorage, likes);
+        RecommendationModel model = new RecommendationModel(likeDbStorage, 1);
+        start = System.nanoTime();
+        model.build();
+        System.out.printf("RecommendationModel.build: %d мс, прогнозов для пользователя 1: %d%n",
+                (System.nanoTime() - start) / 1_000_000, model.predictRatings(1L).size());
+    }
+
+    @Test
+    void measureParallelBuildScaling() {
+        LikeDbStorage likeDbStorage = mock(LikeDbStorage.class);
+        RecommendationModelTest.stubLikes(likeDbStorage, generateLikes());
+        int cores = Runtime.getRuntime().availableProcessors();
+        new RecommendationModel(likeDbStorage, cores).build(); // Прогрев JIT
+        long baseline = 0;
+        for (int parallelism = 1; parallelism <= cores; parallelism *= 2) {
+            RecommendationModel model = new RecommendationModel(likeDbStorage, parallelism);
+            long start = System.nanoTime();
+            model.build();
+            long time = (System.nanoTime() - start) / 1_000_000;
+            if (parallelism == 1) {
+                baseline = time;
+            }
+            System.out.printf("Потоков: %2d, построение %6d мс, ускорение %.2f%n",
+                    parallelism, time, (double) baseline / Math.max(time, 1));
+        }
+    }
+
+    // Версия построения матриц на вложенных HashMap, использовавшаяся до перехода на примитивы
+    private static void computeDifferencesWithHashMaps(Map<Long, Map<Long, Integer>> data,
+                                                       Map<Long, Map<Long, Double>> diff,
+                                                       Map<Long, Map<Long, Integer>> freq) {
+        for (Map<Long, Integer> userLike : data.values()) {
+            for (Map.Entry<Long, Integer> entry1 : userLike.entrySet()) {
+                for (Map.Entry<Long, Integer> entry2 : userLike.entrySet()) {
+                    diff.computeIfAbsent(entry1.getKey(), k -> new HashMap<>())
+                            .merge(entry2.getKey(), (double) entry1.getValue() - entry2.getValue(), Double::sum);
+                    freq.computeIfAbsent(entry1.getKey(), k -> new HashMap<>())
+                            .merge(entry2.getKey(), 1, Integer::sum);
+                }
+            }
+        }
+    }
+
+    static List<Like> generateLikes() {
+        Random random = new Random(42);
+        List<Like> likes = new ArrayList<>(USERS * LIKES_PER_USER);
+        for (long userId = 1; userId <= USERS; userId++) {
+            for (int i = 0; i < LIKES_PER_USER; i++) {
+                // Квадрат равномерной величины дает перекос в сторону популярных фильмов
+                double r = random.nextDouble();
+                likes.add(Like.builder()
+                        .userId(userId)
+                        .filmId((long) (r * r * FILMS) + 1)
+                        .build());
+            }
+        }
+        return likes;
+    }
+
+    static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,142 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.storage.like.LikeDbStorage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class RecommendationModelTest {
+
+    private static final int USERS = 200;
+    private static final int FILMS = 100;
+    private static final int LIKES_PER_USER = 15;
+    private static final int THREADS = Runtime.getRuntime().availableProcessors() * 2;
+    private static final int ROUNDS = 10;
+
+    private LikeDbStorage likeDbStorage;
+    private RecommendationModel model;
+
+    @BeforeEach
+    void setUp() {
+        likeDbStorage = mock(LikeDbStorage.class);
+        stubLikes(likeDbStorage, generateLikes());
+        model = new RecommendationModel(likeDbStorage, 0);
+        model.build();
+    }
+
+    @Test
+    void shouldBuildSameModelWithAnyParallelism() {
+        RecommendationModel sequential = new RecommendationModel(likeDbStorage, 1);
+        sequential.build();
+        RecommendationModel parallel = new RecommendationModel(likeDbStorage, 4);
+        parallel.build();
+        for (long userId = 1; userId <= USERS; userId++) {
+            assertEquals(sequential.predictRatings(userId), parallel.predictRatings(userId));
+        }
+    }
+
+    @Test
+    void shouldReturnSamePredictionsUnderParallelLoad() throws Exception {
+        // Эталонные прогнозы, посчитанные последовательно
+        Map<Long, Map<Long, Double>> expected = new HashMap<>();
+        for (long userId = 1; userId <= USERS; userId++) {
+            expected.put(userId, model.predictRatings(userId));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Map<Long, Map<Long, Double>>>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS * ROUNDS; i++) {
+                futures.add(executor.submit(() -> {
+                    Map<Long, Map<Long, Double>> actual = new HashMap<>();
+                    for (long userId = 1; userId <= USERS; userId++) {
+                        actual.put(userId, model.predictRatings(userId));
+                    }
+                    return actual;
+                }));
+            }
+            for (Future<Map<Long, Map<Long, Double>>> future : futures) {
+                assertEquals(expected, future.get(), "Прогнозы при параллельной нагрузке отличаются");
+            }
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        }
+    }
+
+    @Test
+    void shouldStayConsistentWhenLikesChangeConcurrently() throws Exception {
+        Map<Long, Map<Long, Double>> expected = new HashMap<>();
+        for (long userId = 1; userId <= USERS; userId++) {
+            expected.put(userId, model.predictRatings(userId));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS * ROUNDS; i++) {
+                long userId = USERS + 1 + i; // Новые пользователи ставят и снимают лайки
+                futures.add(executor.submit(() -> {
+                    for (long filmId = 1; filmId <= LIKES_PER_USER; filmId++) {
+                        model.addLike(userId, filmId);
+                    }
+                    model.predictRatings(userId);
+                    for (long filmId = 1; filmId <= LIKES_PER_USER; filmId++) {
+                        model.removeLike(userId, filmId);
+                    }
+                }));
+                futures.add(executor.submit(() -> model.predictRatings(userId % USERS + 1)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        }
+
+        // После того как все добавленные лайки сняты, модель должна вернуться в исходное состояние
+        for (long userId = 1; userId <= USERS; userId++) {
+            assertEquals(expected.get(userId), model.predictRatings(userId));
+        }
+    }
+
+    // Подменяет потоковое чтение лайков выдачей заданного списка
+    static void stubLikes(LikeDbStorage likeDbStorage, List<Like> likes) {
+        doAnswer(invocation -> {
+            LikeDbStorage.LikeConsumer consumer = invocation.getArgument(0);
+            likes.forEach(like -> consumer.accept(like.getUserId(), like.getFilmId()));
+            return null;
+        }).when(likeDbStorage).forEachLike(any());
+    }
+
+    private List<Like> generateLikes() {
+        Random random = new Random(42);
+        List<Like> likes = new ArrayList<>();
+        for (long userId = 1; userId <= USERS; userId++) {
+            for (int i = 0; i < LIKES_PER_USER; i++) {
+                likes.add(Like.builder()
+                        .userId(userId)
+                        .filmId((long) random.nextInt(FILMS) + 1)
+                        .build());
+            }
+        }
+        return likes;
+    }
+}
@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.BadRequestException;
+import ru.yandex.practicum.filmorate.service.film.FilmService;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class RecommendationServiceTest {
+
+    private FilmService filmService;
+    private RecommendationService recommendationService;
+
+    @BeforeEach
+    void setUp() {
+        RecommendationModel model = mock(RecommendationModel.class);
+        Map<Long, Double> predictions = new HashMap<>();
+        predictions.put(1L, 0.5);
+        predictions.put(2L, 2.0);
+        predictions.put(3L, 1.0);
+        predictions.put(4L, 2.0);
+        predictions.put(5L, 1.5);
+        when(model.predictRatings(1L)).thenReturn(predictions);
+        filmService = mock(FilmService.class);
+        when(filmService.getFilmsByIds(anyList())).thenReturn(List.of());
+        recommendationService = new RecommendationService(model, filmService);
+    }
+
+    @Test
+    void shouldSelectTopFilmsByPredictionThenById() {
+        recommendationService.getRecommendFilms(1L, 3);
+        verify(filmService).getFilmsByIds(List.of(2L, 4L, 5L));
+    }
+
+    @Test
+    void shouldReturnAllFilmsWithoutLimit() {
+        recommendationService.getRecommendFilms(1L, null);
+        verify(filmService).getFilmsByIds(List.of(2L, 4L, 5L, 3L, 1L));
+    }
+
+    @Test
+    void shouldRejectNonPositiveLimit() {
+        assertThrows(BadRequestException.class, () -> recommendationService.getRecommendFilms(1L, 0));
+        verifyNoInteractions(filmService);
+    }
+}
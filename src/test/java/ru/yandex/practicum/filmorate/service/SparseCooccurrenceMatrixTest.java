@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SparseCooccurrenceMatrixTest {
+
+    @Test
+    void shouldMatchHashMapVersionOnRandomUpdates() {
+        SparseCooccurrenceMatrix matrix = new SparseCooccurrenceMatrix();
+        Map<Long, int[]> expected = new HashMap<>(); // ключ - пара (row, column), значение - {count, diffSum}
+        Random random = new Random(7);
+        for (int i = 0; i < 200_000; i++) {
+            int row = random.nextInt(50) + 1;
+            int column = random.nextInt(300) + 1;
+            int countDelta = random.nextInt(3) == 0 ? -1 : 1;
+            int diffDelta = random.nextInt(5) - 2;
+            long key = (long) row << 32 | column;
+            int[] cell = expected.get(key);
+            if (cell == null && countDelta < 0) {
+                continue;
+            }
+            matrix.add(row, column, diffDelta, countDelta);
+            if (cell == null) {
+                expected.put(key, new int[]{countDelta, diffDelta});
+            } else if (cell[0] + countDelta == 0) {
+                expected.remove(key);
+            } else {
+                cell[0] += countDelta;
+                cell[1] += diffDelta;
+            }
+        }
+
+        assertEquals(expected.size(), matrix.cellCount());
+        for (Map.Entry<Long, int[]> entry : expected.entrySet()) {
+            int row = (int) (entry.getKey() >>> 32);
+            int column = entry.getKey().intValue();
+            assertEquals(entry.getValue()[0], matrix.count(row, column));
+            assertEquals(entry.getValue()[1], matrix.diffSum(row, column), 0.0001);
+        }
+        long[] visited = new long[1];
+        for (int row = 1; row <= 50; row++) {
+            int r = row;
+            matrix.forEachInRow(row, (column, count, diffSum) -> {
+                assertEquals(expected.get((long) r << 32 | column)[0], count);
+                visited[0]++;
+            });
+        }
+        assertEquals(expected.size(), visited[0]);
+    }
+
+    @Test
+    void shouldRemoveRowWhenLastCellRemoved() {
+        SparseCooccurrenceMatrix matrix = new SparseCooccurrenceMatrix();
+        matrix.add(1000, 5, 0f, 1);
+        matrix.add(1000, 7, 0f, 2);
+        assertEquals(1, matrix.rowCount());
+        matrix.add(1000, 5, 0f, -1);
+        matrix.add(1000, 7, 0f, -2);
+        assertEquals(0, matrix.rowCount());
+        assertEquals(0, matrix.cellCount());
+        assertEquals(0, matrix.count(1000, 7));
+    }
+
+    @Test
+    void shouldRejectNonPositiveIds() {
+        SparseCooccurrenceMatrix matrix = new SparseCooccurrenceMatrix();
+        assertThrows(IllegalArgumentException.class, () -> matrix.add(0, 1, 0f, 1));
+        assertThrows(IllegalArgumentException.class, () -> matrix.add(1, -1, 0f, 1));
+    }
+}
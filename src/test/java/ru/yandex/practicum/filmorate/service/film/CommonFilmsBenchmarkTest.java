@@ -0,0 +1,120 @@
+package ru.yandex.practicum.filmorate.service.film;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.dto.film.FilmDto;
+import ru.yandex.practicum.filmorate.service.importing.BulkImportService;
+import ru.yandex.practicum.filmorate.storage.like.LikeDbStorage;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/* Бенчмарк /films/common для "тяжелых" пользователей с десятками тысяч лайков: пересечение сжатых множеств
+в памяти с пакетной загрузкой фильмов против соединения таблицы LIKES самой с собой.
+Запускается только явно: mvn test -Dtest=CommonFilmsBenchmarkTest -Dbenchmark=true */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@SpringBootTest(properties = {"spring.profiles.active=test",
+        "spring.datasource.url=jdbc:h2:mem:common-films-benchmark;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"})
+class CommonFilmsBenchmarkTest {
+
+    private static final int FILMS = 60_000;
+    private static final int USERS = 2;
+    private static final double LIKE_PROBABILITY = 0.5; // Около 30 000 лайков у каждого пользователя
+    private static final int ROUNDS = 20;
+
+    // Запрос, которым общие фильмы выбирались до появления индекса
+    private static final String JOIN_QUERY = """
+            SELECT film.film_id
+            FROM films AS film
+            WHERE film.film_id IN (
+                SELECT first_likes.film_id
+                FROM likes AS first_likes
+                JOIN likes AS second_likes ON first_likes.film_id = second_likes.film_id
+                WHERE first_likes.user_id = ? AND second_likes.user_id = ?)
+            ORDER BY film.like_count DESC, film.film_id
+            """;
+
+    @Autowired
+    private BulkImportService bulkImportService;
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private LikedFilmsIndex likedFilmsIndex;
+
+    @Autowired
+    private LikeDbStorage likeDbStorage;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void compareBitmapIntersectionWithLikesJoin() {
+        StringBuilder films = new StringBuilder();
+        for (int i = 0; i < FILMS; i++) {
+            films.append("{\"name\":\"Фильм ").append(i).append("\",\"description\":\"Описание\",")
+                    .append("\"releaseDate\":\"2000-01-01\",\"duration\":100,\"mpa\":{\"id\":1}}\n");
+        }
+        bulkImportService.importFilms(new ByteArrayInputStream(films.toString().getBytes(StandardCharsets.UTF_8)));
+        StringBuilder users = new StringBuilder();
+        for (int i = 0; i < USERS; i++) {
+            users.append("{\"email\":\"heavy").append(i).append("@mail.ru\",\"login\":\"heavy").append(i)
+                    .append("\",\"birthday\":\"1990-01-01\"}\n");
+        }
+        bulkImportService.importUsers(new ByteArrayInputStream(users.toString().getBytes(StandardCharsets.UTF_8)));
+        List<Long> userIds = jdbc.queryForList("SELECT user_id FROM users ORDER BY user_id", Long.class);
+        List<Long> filmIds = jdbc.queryForList("SELECT film_id FROM films ORDER BY film_id", Long.class);
+        /* Лайки пишутся прямо в базу: модель рекомендаций при инкрементальных лайках считает пары фильмов
+        пользователя, а для десятков тысяч лайков это сотни миллионов пар. Индекс затем строится по базе. */
+        Random random = new Random(7);
+        List<Object[]> likes = new ArrayList<>();
+        for (Long userId : userIds) {
+            for (Long filmId : filmIds) {
+                if (random.nextDouble() < LIKE_PROBABILITY) {
+                    likes.add(new Object[]{filmId, userId});
+                }
+            }
+        }
+        jdbc.batchUpdate("INSERT INTO likes(film_id, user_id) VALUES (?, ?)", likes);
+        likeDbStorage.reconcileLikeCounts();
+        likedFilmsIndex.build();
+        Long first = userIds.get(0);
+        Long second = userIds.get(1);
+
+        List<Long> expected = jdbc.queryForList(JOIN_QUERY, Long.class, first, second);
+        assertEquals(expected, filmService.commonFilms(first, second).stream()
+                .map(FilmDto::getId)
+                .toList());
+
+        long joinTime = measure(() -> jdbc.queryForList(JOIN_QUERY, Long.class, first, second));
+        long intersectionTime = measure(() -> likedFilmsIndex.getCommonFilmIds(first, second));
+        long endpointTime = measure(() -> filmService.commonFilms(first, second));
+
+        System.out.printf("Общих фильмов: %d из ~%d лайков у каждого пользователя%n",
+                expected.size(), (int) (FILMS * LIKE_PROBABILITY));
+        System.out.printf("Соединение LIKES (только id): %.1f мс%n", joinTime / 1e6);
+        System.out.printf("Пересечение множеств в памяти: %.2f мс%n", intersectionTime / 1e6);
+        System.out.printf("commonFilms целиком (пересечение и загрузка фильмов): %.1f мс%n", endpointTime / 1e6);
+    }
+
+    // Среднее время одного вызова после прогрева
+    private static long measure(Runnable action) {
+        for (int i = 0; i < ROUNDS; i++) {
+            action.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            action.run();
+        }
+        return (System.nanoTime() - start) / ROUNDS;
+    }
+}
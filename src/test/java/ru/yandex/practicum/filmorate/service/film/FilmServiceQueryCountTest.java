@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.service.film;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import ru.yandex.practicum.filmorate.AbstractIntegrationTest;
+import ru.yandex.practicum.filmorate.dto.film.FilmDto;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.director.DirectorDBStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Проверка, что список фильмов собирается фиксированным числом запросов, а не 1 + 2N
+class FilmServiceQueryCountTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private DirectorDBStorage directorDBStorage;
+
+    @Test
+    void shouldLoadFilmListWithConstantNumberOfQueries() {
+        Director director = directorDBStorage.createDirector(Director.builder().name("Режиссер").build());
+        createFilms(2, director);
+        long smallListQueries = countQueries(() -> filmService.getFilms());
+
+        createFilms(20, director);
+        List<FilmDto> films = filmService.getFilms();
+        long largeListQueries = countQueries(() -> filmService.getFilms());
+
+        assertEquals(3, smallListQueries, "Фильмы, жанры и режиссеры должны загружаться тремя запросами");
+        assertEquals(smallListQueries, largeListQueries, "Число запросов не должно зависеть от размера списка");
+        List<FilmDto> directorFilms = films.stream()
+                .filter(film -> film.getDirectors().contains(director))
+                .toList();
+        assertEquals(22, directorFilms.size());
+        directorFilms.forEach(film -> assertEquals(2, film.getGenres().size()));
+    }
+
+    @Test
+    void shouldSaveFilmAssociationsInOneBatchPerTable() {
+        Director first = directorDBStorage.createDirector(Director.builder().name("Первый").build());
+        Director second = directorDBStorage.createDirector(Director.builder().name("Второй").build());
+        clearInvocations();
+        FilmDto film = filmService.createFilm(Film.builder()
+                .name("Фильм")
+                .description("Описание")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .mpa(Mpa.builder().id(1L).build())
+                .genres(List.of(1L, 2L, 3L, 4L, 5L, 5L).stream()
+                        .map(id -> Genre.builder().id(id).build())
+                        .toList())
+                .directors(List.of(Director.builder().id(first.getId()).build(),
+                        Director.builder().id(second.getId()).build()))
+                .build());
+
+        long batches = Mockito.mockingDetails(jdbc).getInvocations().stream()
+                .filter(invocation -> invocation.getMethod().getName().equals("batchUpdate"))
+                .filter(invocation -> invocation.getArguments().length == 4)
+                .count();
+        assertEquals(2, batches, "Жанры и режиссеры должны сохраняться одним пакетом на таблицу");
+        FilmDto saved = filmService.getWithGenre(film.getId());
+        assertEquals(5, saved.getGenres().size());
+        assertEquals(2, saved.getDirectors().size());
+    }
+
+    private void createFilms(int count, Director director) {
+        for (int i = 0; i < count; i++) {
+            filmService.createFilm(Film.builder()
+                    .name("Фильм " + i)
+                    .description("Описание")
+                    .releaseDate(LocalDate.of(2000, 1, 1))
+                    .duration(100)
+                    .mpa(Mpa.builder().id(1L).build())
+                    .genres(List.of(Genre.builder().id(1L).build(), Genre.builder().id(2L).build()))
+                    .directors(List.of(Director.builder().id(director.getId()).build()))
+                    .build());
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.service.film;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoaringBitmapTest {
+
+    @Test
+    void shouldMatchTreeSetForSparseAndDenseContainers() {
+        Random random = new Random(42);
+        RoaringBitmap first = new RoaringBitmap();
+        RoaringBitmap second = new RoaringBitmap();
+        TreeSet<Long> firstExpected = new TreeSet<>();
+        TreeSet<Long> secondExpected = new TreeSet<>();
+        // Плотный контейнер 0, разреженный контейнер 1 и редкие большие id
+        for (int i = 0; i < 30_000; i++) {
+            long dense = random.nextInt(65_536);
+            long sparse = 65_536 + random.nextInt(65_536);
+            long far = random.nextLong(RoaringBitmap.MAX_VALUE);
+            assertEquals(firstExpected.add(dense), first.add(dense));
+            assertEquals(secondExpected.add(i % 3 == 0 ? sparse : dense), second.add(i % 3 == 0 ? sparse : dense));
+            if (i % 10 == 0) {
+                assertEquals(firstExpected.add(sparse), first.add(sparse));
+                assertEquals(firstExpected.add(far), first.add(far));
+            }
+        }
+        // Удаление переводит плотный контейнер обратно в массив
+        for (long value = 0; value < 60_000; value++) {
+            assertEquals(firstExpected.remove(value), first.remove(value));
+        }
+
+        assertEquals(firstExpected, toSet(first));
+        assertEquals(secondExpected, toSet(second));
+        TreeSet<Long> common = new TreeSet<>(firstExpected);
+        common.retainAll(secondExpected);
+        assertEquals(new ArrayList<>(common), toList(first.and(second)));
+        assertEquals(common.size(), first.and(second).cardinality());
+        assertTrue(first.contains(firstExpected.first()));
+        assertFalse(first.contains(-1));
+    }
+
+    @Test
+    void shouldDropEmptyContainersAndRejectOutOfRangeIds() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        assertTrue(bitmap.add(5));
+        assertFalse(bitmap.add(5));
+        assertTrue(bitmap.remove(5));
+        assertFalse(bitmap.remove(5));
+        assertTrue(bitmap.isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> bitmap.add(-1));
+        assertThrows(IllegalArgumentException.class, () -> bitmap.add(RoaringBitmap.MAX_VALUE + 1));
+    }
+
+    private static TreeSet<Long> toSet(RoaringBitmap bitmap) {
+        return new TreeSet<>(toList(bitmap));
+    }
+
+    private static List<Long> toList(RoaringBitmap bitmap) {
+        List<Long> values = new ArrayList<>();
+        bitmap.forEach(values::add);
+        return values;
+    }
+}
@@ -0,0 +1,116 @@
+package ru.yandex.practicum.filmorate.service.film;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.like.LikeDbStorage;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class TrendingIndexTest {
+
+    private static final Instant START = Instant.parse("2024-01-10T12:00:00Z");
+
+    private MutableClock clock;
+    private TrendingIndex index;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(START);
+        LikeDbStorage likeDbStorage = mock(LikeDbStorage.class);
+        // Фильм 1: три лайка двое суток назад; фильм 2: два лайка час назад
+        doAnswer(invocation -> {
+            LikeDbStorage.TimedLikeConsumer consumer = invocation.getArgument(1);
+            for (int i = 0; i < 3; i++) {
+                consumer.accept(1, START.minus(Duration.ofDays(2)));
+            }
+            consumer.accept(2, START.minus(Duration.ofHours(1)));
+            consumer.accept(2, START.minus(Duration.ofHours(1)));
+            return null;
+        }).when(likeDbStorage).forEachLikeSince(any(), any());
+        index = new TrendingIndex(likeDbStorage, Duration.ofHours(24), Duration.ofDays(7), Duration.ofHours(1), clock);
+        index.load();
+    }
+
+    @Test
+    void shouldRankFreshLikesAboveOlderOnes() {
+        // 3 * 2^-2 меньше, чем 2 * 2^(-1/24)
+        assertEquals(List.of(2L, 1L), index.getTop(10));
+        assertEquals(List.of(2L), index.getTop(1));
+
+        index.addLike(3L, START);
+        index.addLike(3L, START);
+        index.addLike(3L, START);
+        assertEquals(List.of(3L, 2L, 1L), index.getTop(10));
+    }
+
+    @Test
+    void shouldDropLikesOutsideWindow() {
+        clock.advance(Duration.ofDays(5).plusHours(1)); // Лайки фильма 1 стали старше недели
+        assertEquals(List.of(2L), index.getTop(10));
+
+        index.addLike(1L, START.minus(Duration.ofDays(10))); // Лайк старше окна не учитывается
+        assertEquals(List.of(2L), index.getTop(10));
+
+        clock.advance(Duration.ofDays(2));
+        assertEquals(List.of(), index.getTop(10));
+    }
+
+    @Test
+    void shouldRemoveLikesAndFilms() {
+        index.removeLike(2L, START.minus(Duration.ofHours(1)));
+        index.removeLike(2L, START.minus(Duration.ofHours(1)));
+        assertEquals(List.of(1L), index.getTop(10));
+
+        index.removeLike(2L, START); // Лайка в этой корзине нет, рейтинг не меняется
+        index.removeFilm(1L);
+        assertEquals(List.of(), index.getTop(10));
+    }
+
+    @Test
+    void shouldKeepOrderAfterRenormalization() {
+        // За 90 дней показатель веса превышает порог, и веса нормируются заново
+        for (int day = 0; day < 90; day++) {
+            clock.advance(Duration.ofDays(1));
+            index.addLike(4L, clock.instant());
+            index.addLike(5L, clock.instant().minus(Duration.ofHours(3)));
+        }
+        assertEquals(List.of(4L, 5L), index.getTop(10));
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        private void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
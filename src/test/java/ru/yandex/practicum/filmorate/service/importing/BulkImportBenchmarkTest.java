@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.service.importing;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.yandex.practicum.filmorate.dto.importing.ImportResultDto;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.user.UserService;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/* Бенчмарк массовой загрузки: пропускная способность в строках в секунду против создания по одной записи.
+Запускается только явно: mvn test -Dtest=BulkImportBenchmarkTest -Dbenchmark=true */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@SpringBootTest(properties = {"spring.profiles.active=test",
+        "spring.datasource.url=jdbc:h2:mem:import-benchmark;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"})
+class BulkImportBenchmarkTest {
+
+    private static final int ROWS = 100_000;
+    private static final int ONE_BY_ONE_ROWS = 10_000;
+
+    @Autowired
+    private BulkImportService bulkImportService;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void compareBulkImportWithOneByOneInserts() {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < ROWS; i++) {
+            body.append("{\"email\":\"bulk").append(i).append("@mail.ru\",\"login\":\"bulk").append(i)
+                    .append("\",\"birthday\":\"1990-01-01\"}\n");
+        }
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+
+        long start = System.nanoTime();
+        ImportResultDto result = bulkImportService.importUsers(new ByteArrayInputStream(bytes));
+        long bulkTime = System.nanoTime() - start;
+        assertEquals(ROWS, result.getImported());
+
+        start = System.nanoTime();
+        for (int i = 0; i < ONE_BY_ONE_ROWS; i++) {
+            userService.userCreate(User.builder()
+                    .email("single" + i + "@mail.ru")
+                    .login("single" + i)
+                    .birthday(LocalDate.of(1990, 1, 1))
+                    .build());
+        }
+        long singleTime = System.nanoTime() - start;
+
+        System.out.printf("Массовая загрузка: %d строк за %d мс, %.0f строк/с%n",
+                ROWS, bulkTime / 1_000_000, ROWS * 1e9 / bulkTime);
+        System.out.printf("По одной записи: %d строк за %d мс, %.0f строк/с%n",
+                ONE_BY_ONE_ROWS, singleTime / 1_000_000, ONE_BY_ONE_ROWS * 1e9 / singleTime);
+    }
+}
@@ -0,0 +1,142 @@
+package ru.yandex.practicum.filmorate.service.importing;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import ru.yandex.practicum.filmorate.AbstractIntegrationTest;
+import ru.yandex.practicum.filmorate.dto.film.FilmDto;
+import ru.yandex.practicum.filmorate.dto.importing.ImportResultDto;
+import ru.yandex.practicum.filmorate.service.feed.FeedService;
+import ru.yandex.practicum.filmorate.storage.like.LikeDbStorage;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkImportServiceTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private BulkImportService bulkImportService;
+
+    @Autowired
+    private FeedService feedService;
+
+    @Autowired
+    private LikeDbStorage likeDbStorage;
+
+    @Test
+    void shouldImportValidRowsAndRejectInvalidOnes() {
+        int usersBefore = userService.getUsers().size();
+        ImportResultDto users = bulkImportService.importUsers(ndjson(
+                "{\"email\":\"a@mail.ru\",\"login\":\"a\",\"birthday\":\"1990-01-01\"}",
+                "{\"email\":\"mail.ru\",\"login\":\"b\",\"birthday\":\"1990-01-01\"}",
+                "",
+                "{не json",
+                "{\"email\":\"c@mail.ru\",\"login\":\"c\",\"birthday\":\"1991-01-01\"}"));
+        assertEquals(2, users.getImported());
+        assertEquals(2, users.getRejected());
+        assertTrue(users.getErrors().get(0).startsWith("Строка 2:"), users.getErrors().toString());
+        assertTrue(users.getErrors().get(1).startsWith("Строка 4:"), users.getErrors().toString());
+        assertEquals(usersBefore + 2, userService.getUsers().size());
+
+        ImportResultDto films = bulkImportService.importFilms(ndjson(
+                "{\"name\":\"Загруженный фильм\",\"releaseDate\":\"2000-01-01\",\"duration\":90,\"mpa\":{\"id\":1},"
+                        + "\"genres\":[{\"id\":1},{\"id\":2},{\"id\":1}]}",
+                "{\"name\":\"Без mpa\",\"releaseDate\":\"2000-01-01\",\"duration\":90}",
+                "{\"name\":\"Неизвестный жанр\",\"releaseDate\":\"2000-01-01\",\"duration\":90,\"mpa\":{\"id\":1},"
+                        + "\"genres\":[{\"id\":999}]}",
+                "{\"name\":\"Неизвестный режиссер\",\"releaseDate\":\"2000-01-01\",\"duration\":90,"
+                        + "\"mpa\":{\"id\":1},\"directors\":[{\"id\":999}]}"));
+        assertEquals(1, films.getImported());
+        assertEquals(3, films.getRejected());
+        FilmDto film = filmService.getFilms().stream()
+                .filter(dto -> dto.getName().equals("Загруженный фильм"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(2, filmService.getWithGenre(film.getId()).getGenres().size());
+    }
+
+    @Test
+    void shouldImportLikesWithoutFeedEvents() {
+        ImportResultDto users = bulkImportService.importUsers(ndjson(
+                "{\"email\":\"like@mail.ru\",\"login\":\"liker\",\"birthday\":\"1990-01-01\"}"));
+        assertEquals(1, users.getImported());
+        Long userId = userService.getUsers().stream()
+                .filter(user -> user.getLogin().equals("liker"))
+                .findFirst()
+                .orElseThrow()
+                .getId();
+        bulkImportService.importFilms(ndjson(
+                "{\"name\":\"Лайкнутый\",\"releaseDate\":\"2000-01-01\",\"duration\":90,\"mpa\":{\"id\":1}}"));
+        Long filmId = filmService.getFilms().stream()
+                .filter(dto -> dto.getName().equals("Лайкнутый"))
+                .findFirst()
+                .orElseThrow()
+                .getId();
+
+        String like = "{\"userId\":" + userId + ",\"filmId\":" + filmId + "}";
+        ImportResultDto likes = bulkImportService.importLikes(ndjson(
+                like,
+                like,
+                "{\"userId\":" + userId + ",\"filmId\":999999}",
+                "{\"userId\":999999,\"filmId\":" + filmId + "}",
+                "{\"userId\":" + userId + "}"));
+
+        assertEquals(2, likes.getImported());
+        assertEquals(3, likes.getRejected());
+        assertEquals(1, likeDbStorage.getLikesByFilmId(filmId).size(), "Повторный лайк не должен дублироваться");
+        assertTrue(feedService.getUserFeed(userId).isEmpty(), "Загрузка не должна создавать события ленты");
+    }
+
+    @Test
+    void shouldNotCountRepeatedImportOfSameLikesInTrending() {
+        bulkImportService.importUsers(ndjson(
+                "{\"email\":\"trend1@mail.ru\",\"login\":\"trend1\",\"birthday\":\"1990-01-01\"}",
+                "{\"email\":\"trend2@mail.ru\",\"login\":\"trend2\",\"birthday\":\"1990-01-01\"}"));
+        bulkImportService.importFilms(ndjson(
+                "{\"name\":\"Загружен трижды\",\"releaseDate\":\"2000-01-01\",\"duration\":90,\"mpa\":{\"id\":1}}",
+                "{\"name\":\"Два лайка\",\"releaseDate\":\"2000-01-01\",\"duration\":90,\"mpa\":{\"id\":1}}"));
+        Long first = userId("trend1");
+        Long second = userId("trend2");
+        Long repeated = filmId("Загружен трижды");
+        Long twice = filmId("Два лайка");
+
+        String like = "{\"userId\":" + first + ",\"filmId\":" + repeated + "}";
+        for (int i = 0; i < 3; i++) { // Одни и те же лайки загружаются повторно
+            assertEquals(1, bulkImportService.importLikes(ndjson(like)).getImported());
+        }
+        bulkImportService.importLikes(ndjson(
+                "{\"userId\":" + first + ",\"filmId\":" + twice + "}",
+                "{\"userId\":" + second + ",\"filmId\":" + twice + "}"));
+
+        assertEquals(1, likeDbStorage.getLikesByFilmId(repeated).size());
+        List<Long> trending = filmService.getTrendingFilms(100).stream()
+                .map(FilmDto::getId)
+                .toList();
+        assertTrue(trending.indexOf(twice) < trending.indexOf(repeated),
+                "Уже существующий лайк не должен повторно учитываться в трендах: " + trending);
+    }
+
+    private Long userId(String login) {
+        return userService.getUsers().stream()
+                .filter(dto -> dto.getLogin().equals(login))
+                .findFirst()
+                .orElseThrow()
+                .getId();
+    }
+
+    private Long filmId(String name) {
+        return filmService.getFilms().stream()
+                .filter(dto -> dto.getName().equals(name))
+                .findFirst()
+                .orElseThrow()
+                .getId();
+    }
+
+    private static InputStream ndjson(String... lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,115 @@
+package ru.yandex.practicum.filmorate.service.stats;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import ru.yandex.practicum.filmorate.dto.stats.HeavyHitterDto;
+import ru.yandex.practicum.filmorate.dto.stats.HeavyHittersDto;
+
+import java.lang.ref.Reference;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/* Сравнение приблизительного подсчета с точным (HashMap) по точности топа и памяти
+на потоке событий с распределением Ципфа. Запускается только явно:
+mvn test -Dtest=HeavyHittersBenchmarkTest -Dbenchmark=true */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class HeavyHittersBenchmarkTest {
+
+    private static final int FILMS = 500_000;
+    private static final int EVENTS = 5_000_000;
+    private static final double ZIPF_EXPONENT = 1.1;
+    private static final int TOP = 100;
+
+    @Test
+    void compareWithExactCounting() {
+        long[] events = generateEvents();
+
+        // Сначала приблизительный подсчет: точная карта нужна до конца теста и мешала бы замеру памяти
+        long before = usedMemory();
+        long start = System.nanoTime();
+        HeavyHitters heavyHitters = new HeavyHitters("views", 1_000, 0.001, 0.01);
+        for (long event : events) {
+            heavyHitters.add(event);
+        }
+        long sketchTime = System.nanoTime() - start;
+        long sketchMemory = usedMemory() - before;
+        HeavyHittersDto top = heavyHitters.getTop(TOP);
+        Reference.reachabilityFence(heavyHitters);
+
+        before = usedMemory();
+        start = System.nanoTime();
+        Map<Long, Long> exact = new HashMap<>();
+        for (long event : events) {
+            exact.merge(event, 1L, Long::sum);
+        }
+        long exactTime = System.nanoTime() - start;
+        long exactMemory = usedMemory() - before;
+        Reference.reachabilityFence(exact);
+
+        Set<Long> exactTop = exact.entrySet().stream()
+                .sorted(Map.Entry.<Long, Long>comparingByValue().reversed())
+                .limit(TOP)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+        List<HeavyHitterDto> items = top.getItems();
+        long recall = items.stream().filter(item -> exactTop.contains(item.getFilmId())).count();
+        double maxRelativeError = items.stream()
+                .mapToDouble(item -> (double) (item.getCount() - exact.get(item.getFilmId()))
+                        / exact.get(item.getFilmId()))
+                .max()
+                .orElse(0);
+        long maxWidth = items.stream()
+                .mapToLong(item -> item.getCount() - item.getMinCount())
+                .max()
+                .orElse(0);
+
+        System.out.printf("Событий: %d, разных фильмов: %d%n", EVENTS, exact.size());
+        System.out.printf("HashMap:       %6d мс, память %8d КБ (оценка %d КБ)%n",
+                exactTime / 1_000_000, exactMemory >> 10, hashMapBytes(exact.size()) >> 10);
+        System.out.printf("Sketch:        %6d мс, память %8d КБ (оценка %d КБ)%n",
+                sketchTime / 1_000_000, sketchMemory >> 10, top.getMemoryBytes() >> 10);
+        System.out.printf("Совпадение топ-%d: %d, макс. относительная погрешность: %.4f, "
+                        + "макс. ширина интервала: %d, гарантии: %d / %d%n",
+                TOP, recall, maxRelativeError, maxWidth, top.getGuaranteedError(), top.getSketchError());
+        System.out.printf("Первые 5: %s%n", items.stream()
+                .limit(5)
+                .map(item -> item.getFilmId() + "=" + item.getCount() + " (точно " + exact.get(item.getFilmId()) + ")")
+                .toList());
+    }
+
+    // Номера фильмов по закону Ципфа: вероятность i-го фильма пропорциональна 1 / i^s
+    private static long[] generateEvents() {
+        double[] cumulative = new double[FILMS];
+        double sum = 0;
+        for (int i = 0; i < FILMS; i++) {
+            sum += 1 / Math.pow(i + 1, ZIPF_EXPONENT);
+            cumulative[i] = sum;
+        }
+        Random random = new Random(7);
+        long[] events = new long[EVENTS];
+        for (int i = 0; i < EVENTS; i++) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            events[i] = (index >= 0 ? index : -index - 1) + 1;
+        }
+        return events;
+    }
+
+    // Узел HashMap, ключ и значение Long плюс ссылка в таблице с коэффициентом заполнения 0.75
+    private static long hashMapBytes(int size) {
+        long table = Integer.highestOneBit(size * 4 / 3) * 2L;
+        return size * 64L + table * 4;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.service.stats;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.dto.stats.HeavyHitterDto;
+import ru.yandex.practicum.filmorate.dto.stats.HeavyHittersDto;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HeavyHittersTest {
+
+    @Test
+    void shouldCountExactlyWhileItemsFitIntoCapacity() {
+        HeavyHitters heavyHitters = new HeavyHitters("likes", 10, 0.01, 0.01);
+        add(heavyHitters, 1, 5);
+        add(heavyHitters, 2, 7);
+        add(heavyHitters, 3, 1);
+
+        HeavyHittersDto top = heavyHitters.getTop(2);
+
+        assertEquals(13, top.getTotalEvents());
+        assertEquals(List.of(2L, 1L), top.getItems().stream().map(HeavyHitterDto::getFilmId).toList());
+        top.getItems().forEach(item -> assertEquals(item.getMinCount(), item.getCount()));
+        assertEquals(7, top.getItems().get(0).getCount());
+    }
+
+    @Test
+    void shouldKeepFrequentItemsAndBoundErrorsWhenStreamExceedsCapacity() {
+        HeavyHitters heavyHitters = new HeavyHitters("views", 20, 0.001, 0.01);
+        Map<Long, Long> exact = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            // Четверть событий приходится на 5 популярных фильмов, остальные размазаны по 5000 фильмов
+            long filmId = i % 4 == 0 ? random.nextInt(5) : 100 + random.nextInt(5_000);
+            heavyHitters.add(filmId);
+            exact.merge(filmId, 1L, Long::sum);
+        }
+
+        HeavyHittersDto top = heavyHitters.getTop(5);
+
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L), top.getItems().stream()
+                .map(HeavyHitterDto::getFilmId)
+                .sorted()
+                .toList());
+        for (HeavyHitterDto item : top.getItems()) {
+            long actual = exact.get(item.getFilmId());
+            assertTrue(item.getMinCount() <= actual && actual <= item.getCount(),
+                    "Истинная частота должна лежать в границах оценки: " + item + ", " + actual);
+            assertTrue(item.getCount() - actual <= top.getSketchError());
+        }
+    }
+
+    private static void add(HeavyHitters heavyHitters, long item, int times) {
+        for (int i = 0; i < times; i++) {
+            heavyHitters.add(item);
+        }
+    }
+}
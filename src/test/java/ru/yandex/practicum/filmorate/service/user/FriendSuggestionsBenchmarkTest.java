@@ -0,0 +1,140 @@
+package ru.yandex.practicum.filmorate.service.user;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import ru.yandex.practicum.filmorate.storage.friend.FriendDbStorage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/* Бенчмарк рекомендаций друзей на синтетическом графе со степенным распределением числа друзей
+(модель Барабаши - Альберт: новый пользователь дружит с уже популярными пользователями чаще).
+Сравнивается обход с бюджетом и полный обход двух шагов: задержка и доля совпадения с точным top-K.
+Запускается только явно: mvn test -Dtest=FriendSuggestionsBenchmarkTest -Dbenchmark=true */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class FriendSuggestionsBenchmarkTest {
+
+    private static final int USERS = 200_000;
+    private static final int LINKS_PER_USER = 8; // Взаимных дружб, которые заводит каждый новый пользователь
+    private static final int SAMPLE = 2_000; // Случайных пользователей в замере
+    private static final int HUBS = 20; // Самых популярных пользователей в отдельном замере
+    private static final int LIMIT = 10;
+    private static final int[] BUDGETS = {10_000, 100_000, Integer.MAX_VALUE};
+
+    @Test
+    void compareBoundedAndFullTraversal() {
+        FriendshipGraph graph = powerLawGraph();
+        Random random = new Random(11);
+        List<Long> sample = new ArrayList<>();
+        for (int i = 0; i < SAMPLE; i++) {
+            sample.add(1L + random.nextInt(USERS));
+        }
+        // Первые пользователи модели набирают больше всего друзей
+        List<Long> hubs = new ArrayList<>();
+        for (long id = 1; id <= HUBS; id++) {
+            hubs.add(id);
+        }
+        System.out.printf("Граф: %d пользователей, друзей у первого %d, медиана %d%n", USERS,
+                graph.friendsOf(1L).length, medianDegree(graph));
+        report("Случайные пользователи", graph, sample);
+        report("Самые популярные пользователи", graph, hubs);
+    }
+
+    private static void report(String title, FriendshipGraph graph, List<Long> users) {
+        for (long userId : users) { // Прогрев
+            graph.suggestFriends(userId, LIMIT, BUDGETS[0]);
+        }
+        List<List<Long>> exact = new ArrayList<>();
+        for (long userId : users) {
+            exact.add(graph.suggestFriends(userId, LIMIT, Integer.MAX_VALUE));
+        }
+        System.out.println(title + ":");
+        for (int budget : BUDGETS) {
+            long[] times = new long[users.size()];
+            double recall = 0;
+            for (int i = 0; i < users.size(); i++) {
+                long start = System.nanoTime();
+                List<Long> suggested = graph.suggestFriends(users.get(i), LIMIT, budget);
+                times[i] = System.nanoTime() - start;
+                recall += recall(exact.get(i), suggested);
+            }
+            Arrays.sort(times);
+            System.out.printf("  бюджет %s: медиана %.3f мс, p99 %.3f мс, максимум %.3f мс, "
+                            + "совпадение с точным top-%d %.1f%%%n",
+                    budget == Integer.MAX_VALUE ? "без ограничения" : String.valueOf(budget),
+                    times[times.length / 2] / 1e6, times[(int) (times.length * 0.99)] / 1e6,
+                    times[times.length - 1] / 1e6, LIMIT, 100 * recall / users.size());
+        }
+    }
+
+    // Доля точных рекомендаций, попавших в приближенные; пустой точный список совпадает всегда
+    private static double recall(List<Long> exact, List<Long> suggested) {
+        if (exact.isEmpty()) {
+            return 1;
+        }
+        Set<Long> found = new HashSet<>(suggested);
+        return exact.stream()
+                .filter(found::contains)
+                .count() / (double) exact.size();
+    }
+
+    private static int medianDegree(FriendshipGraph graph) {
+        int[] degrees = new int[USERS];
+        for (int i = 0; i < USERS; i++) {
+            degrees[i] = graph.friendsOf(i + 1L).length;
+        }
+        Arrays.sort(degrees);
+        return degrees[USERS / 2];
+    }
+
+    /* Граф строится предпочтительным присоединением: концы всех связей хранятся в одном массиве,
+    и случайный элемент массива - пользователь с вероятностью, пропорциональной числу его друзей. */
+    private static FriendshipGraph powerLawGraph() {
+        Random random = new Random(3);
+        int[] ends = new int[2 * USERS * LINKS_PER_USER];
+        int endsCount = 0;
+        int[][] links = new int[USERS + 1][];
+        for (int user = 1; user <= USERS; user++) {
+            int count = Math.min(LINKS_PER_USER, user - 1);
+            int[] targets = new int[count];
+            int found = 0;
+            while (found < count) {
+                int target = user <= LINKS_PER_USER + 1 ? found + 1 : ends[random.nextInt(endsCount)];
+                boolean repeated = false;
+                for (int i = 0; i < found; i++) {
+                    repeated |= targets[i] == target;
+                }
+                if (!repeated) {
+                    targets[found++] = target;
+                }
+            }
+            for (int target : targets) {
+                ends[endsCount++] = user;
+                ends[endsCount++] = target;
+            }
+            links[user] = targets;
+        }
+        FriendDbStorage friendDbStorage = mock(FriendDbStorage.class);
+        doAnswer(invocation -> {
+            FriendDbStorage.FriendshipConsumer consumer = invocation.getArgument(0);
+            for (int user = 1; user <= USERS; user++) {
+                for (int target : links[user]) { // Дружба взаимная: две строки FRIENDSHIP
+                    consumer.accept(user, target);
+                    consumer.accept(target, user);
+                }
+            }
+            return null;
+        }).when(friendDbStorage).forEachFriendship(any());
+        FriendshipGraph graph = new FriendshipGraph(friendDbStorage);
+        graph.load();
+        return graph;
+    }
+}
@@ -0,0 +1,131 @@
+package ru.yandex.practicum.filmorate.service.user;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.friend.FriendDbStorage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FriendshipGraphTest {
+
+    private final Map<Long, List<Long>> rows = new HashMap<>(); // Строки FRIENDSHIP: user_id -> friend_id
+    private FriendshipGraph graph;
+
+    @BeforeEach
+    void setUp() {
+        // Связи читаются из базы в произвольном порядке
+        insert(1L, 4L);
+        insert(1L, 2L);
+        insert(1L, 3L);
+        insert(2L, 3L);
+        insert(2L, 1L);
+        insert(3L, 4L);
+        FriendDbStorage friendDbStorage = mock(FriendDbStorage.class);
+        doAnswer(invocation -> {
+            FriendDbStorage.FriendshipConsumer consumer = invocation.getArgument(0);
+            rows.forEach((userId, friendIds) -> friendIds.forEach(friendId -> consumer.accept(userId, friendId)));
+            return null;
+        }).when(friendDbStorage).forEachFriendship(any());
+        when(friendDbStorage.getFriendIds(any())).thenAnswer(invocation ->
+                List.copyOf(rows.getOrDefault(invocation.<Long>getArgument(0), List.of())));
+        graph = new FriendshipGraph(friendDbStorage);
+        graph.load();
+    }
+
+    @Test
+    void shouldAnswerFriendsAndMutualFriends() {
+        assertEquals(List.of(2L, 3L, 4L), graph.getFriendIds(1L));
+        assertEquals(List.of(3L), graph.getMutualFriendIds(1L, 2L));
+        assertEquals(List.of(4L), graph.getMutualFriendIds(3L, 1L));
+        assertEquals(List.of(), graph.getFriendIds(5L));
+        assertTrue(graph.hasFriend(2L, 1L));
+        assertFalse(graph.hasFriend(3L, 1L));
+    }
+
+    @Test
+    void shouldApplyChangesAndUserRemoval() {
+        addFriend(2L, 4L);
+        graph.refreshFriends(2L); // Повторное обновление ничего не меняет
+        assertEquals(List.of(1L, 3L, 4L), graph.getFriendIds(2L));
+        assertEquals(List.of(3L, 4L), graph.getMutualFriendIds(1L, 2L));
+
+        removeFriend(1L, 3L);
+        graph.refreshFriends(5L); // У пользователя нет друзей
+        assertEquals(List.of(2L, 4L), graph.getFriendIds(1L));
+        assertEquals(List.of(), graph.getFriendIds(5L));
+
+        graph.removeUser(4L);
+        assertEquals(List.of(2L), graph.getFriendIds(1L));
+        assertEquals(List.of(), graph.getFriendIds(3L));
+    }
+
+    @Test
+    void shouldKeepLatestFriendListWhenUpdatesArriveOutOfOrder() {
+        insert(1L, 5L); // Первый запрос добавил друга 5 и еще не обновил граф
+        removeFriend(1L, 5L); // Второй запрос удалил его и обновил граф первым
+        graph.refreshFriends(1L); // Опоздавшее обновление первого запроса
+
+        assertFalse(graph.hasFriend(1L, 5L));
+        assertEquals(List.of(2L, 3L, 4L), graph.getFriendIds(1L));
+    }
+
+    @Test
+    void shouldSuggestFriendsOfFriendsByMutualFriendCount() {
+        addFriend(3L, 5L);
+        addFriend(1L, 6L);
+        // У пользователя 2 друзья 1 и 3: 4 есть у обоих, 5 - только у 3, 6 - только у 1.
+        // Сам пользователь 2 и его друзья не предлагаются
+        assertEquals(List.of(4L, 5L, 6L), graph.suggestFriends(2L, 10, Integer.MAX_VALUE));
+        assertEquals(List.of(4L, 5L), graph.suggestFriends(2L, 2, Integer.MAX_VALUE));
+        assertEquals(List.of(), graph.suggestFriends(7L, 10, Integer.MAX_VALUE));
+    }
+
+    @Test
+    void shouldStopSuggestionsWhenWorkBudgetIsSpent() {
+        addFriend(3L, 5L);
+        addFriend(1L, 6L);
+        // Первым обходится короткий список друга 3 (4 и 5), на список друга 1 бюджета уже не остается
+        assertEquals(List.of(4L, 5L), graph.suggestFriends(2L, 10, 2));
+        assertEquals(List.of(4L), graph.suggestFriends(2L, 10, 1));
+    }
+
+    @Test
+    void shouldIntersectListsOfVeryDifferentSizes() {
+        int[] longer = IntStream.range(0, 10_000)
+                .map(i -> i * 2)
+                .toArray();
+        int[] shorter = {3, 4, 5, 998, 19_998, 20_000};
+        // Короткий список больше чем в 32 раза короче длинного: пересечение идет двоичным поиском
+        assertArrayEquals(new int[]{4, 998, 19_998}, FriendshipGraph.intersect(shorter, longer));
+        assertArrayEquals(new int[]{4, 998}, FriendshipGraph.intersect(new int[]{1, 4, 998},
+                new int[]{0, 2, 4, 998, 1000}));
+    }
+
+    // Изменение строк FRIENDSHIP с последующим обновлением графа, как в UserService
+    private void addFriend(Long userId, Long friendId) {
+        insert(userId, friendId);
+        graph.refreshFriends(userId);
+    }
+
+    private void removeFriend(Long userId, Long friendId) {
+        rows.get(userId).remove(friendId);
+        graph.refreshFriends(userId);
+    }
+
+    private void insert(Long userId, Long friendId) {
+        rows.computeIfAbsent(userId, k -> new ArrayList<>()).add(friendId);
+    }
+}
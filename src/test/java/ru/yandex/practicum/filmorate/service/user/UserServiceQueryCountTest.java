@@ -0,0 +1,96 @@
+package ru.yandex.practicum.filmorate.service.user;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.AbstractIntegrationTest;
+import ru.yandex.practicum.filmorate.dto.page.PageDto;
+import ru.yandex.practicum.filmorate.dto.user.UserDto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// Проверка, что друзья и общие друзья загружаются фиксированным числом запросов, а не по запросу на друга
+class UserServiceQueryCountTest extends AbstractIntegrationTest {
+
+    private static final int FRIENDS = 25;
+
+    @Test
+    void shouldLoadFriendsWithConstantNumberOfQueries() {
+        Long user = createUser("owner");
+        Long other = createUser("other");
+        List<Long> friendIds = new ArrayList<>();
+        for (int i = 0; i < FRIENDS; i++) {
+            Long friend = createUser("friend" + i);
+            friendIds.add(friend);
+            userService.friending(user, friend);
+            if (i % 2 == 0) {
+                userService.friending(other, friend);
+            }
+        }
+
+        assertEquals(2, countQueries(() -> userService.getUserFriends(user)),
+                "Проверка пользователя и загрузка всех друзей одним запросом");
+        assertEquals(1, countQueries(() -> userService.listOfMutualFriends(user, other)),
+                "Общие друзья должны загружаться одним запросом");
+        assertEquals(friendIds, userService.getUserFriends(user).stream()
+                .map(UserDto::getId)
+                .toList());
+        assertEquals(13, userService.listOfMutualFriends(user, other).size());
+    }
+
+    @Test
+    void shouldPageThroughFriendsByCursor() {
+        Long user = createUser("pager");
+        List<Long> friendIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Long friend = createUser("paged" + i);
+            friendIds.add(friend);
+            userService.friending(user, friend);
+        }
+
+        PageDto<UserDto> first = userService.getUserFriendsPage(user, null, 2);
+        assertEquals(friendIds.subList(0, 2), ids(first));
+        PageDto<UserDto> second = userService.getUserFriendsPage(user, first.getNextCursor(), 2);
+        assertEquals(friendIds.subList(2, 4), ids(second));
+        PageDto<UserDto> last = userService.getUserFriendsPage(user, second.getNextCursor(), 2);
+        assertEquals(friendIds.subList(4, 5), ids(last));
+        assertNull(last.getNextCursor());
+    }
+
+    @Test
+    void shouldAddAndRemoveFriendWithConstantNumberOfStatements() {
+        Long user = createUser("busy");
+        Long friend = createUser("popular");
+        for (int i = 0; i < FRIENDS; i++) { // У обоих много друзей: раньше их списки читались целиком
+            Long other = createUser("crowd" + i);
+            userService.friending(user, other);
+            userService.friending(other, friend);
+        }
+
+        assertEquals(4, countStatements(() -> userService.friending(friend, user)),
+                "Проверка пользователя, условная вставка, подтверждение встречной строки и чтение списка друзей");
+        assertEquals(Boolean.FALSE, accept(friend, user));
+        assertEquals(4, countStatements(() -> userService.friending(user, friend)));
+        assertEquals(Boolean.TRUE, accept(user, friend));
+        assertEquals(Boolean.TRUE, accept(friend, user));
+
+        assertEquals(4, countStatements(() -> userService.unfriending(friend, user)),
+                "Проверка пользователя, удаление, сброс подтверждения встречной строки и чтение списка друзей");
+        assertEquals(Boolean.FALSE, accept(user, friend));
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM FRIENDSHIP WHERE USER_ID = ? AND FRIEND_ID = ?",
+                Integer.class, friend, user));
+    }
+
+    private static List<Long> ids(PageDto<UserDto> page) {
+        return page.getItems().stream()
+                .map(UserDto::getId)
+                .toList();
+    }
+
+    private Boolean accept(Long userId, Long friendId) {
+        return jdbc.queryForObject("SELECT ACCEPT FROM FRIENDSHIP WHERE USER_ID = ? AND FRIEND_ID = ?",
+                Boolean.class, userId, friendId);
+    }
+}
@@ -0,0 +1,261 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.storage.director.DirectorDBStorage;
+import ru.yandex.practicum.filmorate.storage.director.DirectorFilmDBStorage;
+import ru.yandex.practicum.filmorate.storage.event.FeedDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.genres.GenresFilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.friend.FriendDbStorage;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.like.LikeDbStorage;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.review.ReviewStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/* Проверка планов запросов хранилищ через EXPLAIN: запросы по ключу или по связям не должны читать
+таблицы целиком. Каждая SQL-константа хранилищ должна быть либо в списке проверяемых, либо в списке
+запросов, которые читают таблицу целиком намеренно, - так новый запрос не останется без проверки.
+База заполняется данными, чтобы оптимизатор выбирал план по реальной статистике, а не по пустым таблицам. */
+@SpringBootTest(properties = {"spring.profiles.active=test",
+        "spring.datasource.url=jdbc:h2:mem:query-plan;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"})
+class QueryPlanTest {
+
+    private static final List<Class<?>> STORAGES = List.of(FilmDbStorage.class, GenresFilmDbStorage.class,
+            UserDbStorage.class, FriendDbStorage.class, FeedDbStorage.class, ReviewStorage.class,
+            LikeDbStorage.class, GenreDbStorage.class, MpaDbStorage.class, DirectorDBStorage.class,
+            DirectorFilmDBStorage.class);
+
+    private static final String TIMESTAMP = "TIMESTAMP '2024-01-01 00:00:00'";
+
+    // Запрос -> значение, подставляемое вместо параметров "?", и таблицы, которые он должен читать по индексу
+    private static final Map<String, Query> INDEXED = Map.ofEntries(
+            indexed(FilmDbStorage.class, "FIND_PAGE_QUERY", "FILMS"),
+            indexed(FilmDbStorage.class, "FIND_BY_ID_QUERY", "FILMS"),
+            indexed(FilmDbStorage.class, "FIND_BY_IDS_QUERY", "FILMS"),
+            indexed(FilmDbStorage.class, "FIND_IDS_QUERY", "FILMS"),
+            indexed(FilmDbStorage.class, "UPDATE_QUERY", "FILMS"),
+            // Топ читается с начала индекса по счетчику лайков и останавливается на LIMIT
+            sortedByIndex(FilmDbStorage.class, "FIND_POPULAR_LIMIT_QUERY", "IDX_FILMS_LIKE_COUNT", "FILMS",
+                    "GENRES_FILM"),
+            indexed(FilmDbStorage.class, "FIND_LIKE_COUNTS_QUERY", "FILMS"),
+            indexed(FilmDbStorage.class, "DELETE_QUERY", "FILMS"),
+            indexed(FilmDbStorage.class, "FILM_SORTED_BY_YEAR_QUERY", "DIRECTORS_FILMS", "FILMS"),
+            indexed(FilmDbStorage.class, "FILM_SORTED_BY_LIKE_QUERY", "DIRECTORS_FILMS", "FILMS"),
+            indexed(GenresFilmDbStorage.class, "FIND_BY_FILM_ID_QUERY", "GENRES_FILM"),
+            indexed(GenresFilmDbStorage.class, "FIND_BY_FILM_IDS_QUERY", "GENRES_FILM"),
+            indexed(GenresFilmDbStorage.class, "DELETE_GENRES_BY_FILM_ID", "GENRES_FILM"),
+            indexed(UserDbStorage.class, "FIND_PAGE_QUERY", "USERS"),
+            indexed(UserDbStorage.class, "FIND_BY_ID_QUERY", "USERS"),
+            indexed(UserDbStorage.class, "FIND_BY_IDS_QUERY", "USERS"),
+            indexed(UserDbStorage.class, "UPDATE_QUERY", "USERS"),
+            indexed(UserDbStorage.class, "FIND_IDS_QUERY", "USERS"),
+            indexed(UserDbStorage.class, "DELETE_QUERY", "USERS"),
+            indexed(FriendDbStorage.class, "INSERT_FRIEND_IF_ABSENT", "FRIENDSHIP"),
+            indexed(FriendDbStorage.class, "UPDATE_FRIEND_BY_ID", "FRIENDSHIP"),
+            indexed(FriendDbStorage.class, "DELETE_FRIEND", "FRIENDSHIP"),
+            indexed(FriendDbStorage.class, "DELETE_FRIENDS_BY_USER_ID", "FRIENDSHIP"),
+            indexed(FriendDbStorage.class, "DELETE_FRIENDS_BY_FRIEND_ID", "FRIENDSHIP"),
+            indexed(FriendDbStorage.class, "FIND_FRIEND_IDS", "FRIENDSHIP"),
+            indexed(FeedDbStorage.class, "LIST_FEED_FOR_USER_ID_QUERY", "EVENTS"),
+            indexed(FeedDbStorage.class, "LIST_FEED_PAGE_QUERY", "EVENTS"),
+            indexed(ReviewStorage.class, "SQL_GET_REVIEW_BY_IDS", "REVIEWS", "REVIEWS_LIKES"),
+            indexed(ReviewStorage.class, "SQL_GET_REVIEW_BY_FILM_IDS_LIMIT", "REVIEWS", "REVIEWS_LIKES"),
+            indexed(ReviewStorage.class, "SQL_DELETE_REVIEW_BY_ID", "REVIEWS"),
+            indexed(ReviewStorage.class, "SQL_DELETE_LIKE", "REVIEWS_LIKES"),
+            indexed(ReviewStorage.class, "SQL_UPDATE_REVIEW", "REVIEWS"),
+            indexed(LikeDbStorage.class, "INSERT_AT_IF_ABSENT_QUERY", "LIKES"),
+            indexed(LikeDbStorage.class, "CHANGE_COUNT_QUERY", "FILMS"),
+            indexed(LikeDbStorage.class, "RECOUNT_QUERY", "FILMS", "LIKES"),
+            indexed(LikeDbStorage.class, "RELEASE_USER_LIKES_QUERY", "FILMS", "LIKES"),
+            indexed(LikeDbStorage.class, "FIND_BY_FILM_ID_QUERY", "LIKES"),
+            indexed(LikeDbStorage.class, "FIND_BY_USER_ID_QUERY", "LIKES"),
+            indexed(LikeDbStorage.class, "DELETE_QUERY", "LIKES"),
+            indexed(LikeDbStorage.class, "DELETE_QUERY_BY_FILM_ID", "LIKES"),
+            indexed(LikeDbStorage.class, "DELETE_QUERY_BY_USER_ID", "LIKES"),
+            indexed(LikeDbStorage.class, "SEARCH_POST_LIKE", "LIKES"),
+            indexedWith(LikeDbStorage.class, "FIND_SINCE_QUERY", TIMESTAMP, "LIKES"),
+            indexed(DirectorDBStorage.class, "DIRECTOR_QUERY", "DIRECTORS"),
+            indexed(DirectorDBStorage.class, "UPDATE_QUERY", "DIRECTORS"),
+            indexed(DirectorDBStorage.class, "DELETE_QUERY", "DIRECTORS"),
+            indexed(DirectorDBStorage.class, "LIST_DIRECTORS_BY_ID_QUERY", "DIRECTORS"),
+            indexed(DirectorDBStorage.class, "SEARCH_DIR_FOR_FILM_QUERY", "DIRECTORS_FILMS", "DIRECTORS"),
+            indexed(DirectorDBStorage.class, "SEARCH_DIR_FOR_FILMS_QUERY", "DIRECTORS_FILMS", "DIRECTORS"),
+            indexed(DirectorFilmDBStorage.class, "DELETE_DIRECTOR_BY_FILM_QUERY", "DIRECTORS_FILMS"));
+
+    // Вставки и запросы, которым по смыслу нужна вся таблица (выгрузки, построение индексов в памяти, сверка)
+    private static final Set<String> NOT_CHECKED = Set.of(
+            "FilmDbStorage.FIND_ALL_QUERY", "FilmDbStorage.INSERT_QUERY", "FilmDbStorage.FIND_ALL_RANKS_QUERY",
+            "FilmDbStorage.SEARCH_FILM", // Поиск по подстроке в названии и имени режиссера
+            "GenresFilmDbStorage.INSERT_QUERY", "GenresFilmDbStorage.FIND_ALL_LINKS_QUERY",
+            "UserDbStorage.FIND_ALL_QUERY", "UserDbStorage.INSERT_QUERY",
+            "FriendDbStorage.FIND_ALL_PAIRS",
+            "FeedDbStorage.INSERT_QUERY",
+            "ReviewStorage.SQL_INSERT_REVIEW", "ReviewStorage.SQL_GET_REVIEW_BASE",
+            "ReviewStorage.SQL_GROUP_BY_REVIEW", "ReviewStorage.SQL_GET_ALL_REVIEWS_LIMIT",
+            "ReviewStorage.SQL_MERGE_REVIEW_LIKES",
+            "LikeDbStorage.RECONCILE_QUERY", "LikeDbStorage.FIND_ALL_PAIRS_QUERY",
+            "GenreDbStorage.FIND_ALL_QUERY", "MpaDbStorage.FIND_ALL_QUERY",
+            "DirectorDBStorage.FIND_ALL_QUERY", "DirectorDBStorage.INSERT_QUERY",
+            "DirectorFilmDBStorage.CREATE_POST_DIRECTOR_FILM");
+
+    // Строка плана с таблицей и следующая за ней строка со способом доступа
+    private static final Pattern TABLE_ACCESS = Pattern.compile(
+            "\"?PUBLIC\"?\\.\"?(\\w+)\"?(?: \"?\\w+\"?)?\\s*\\n\\s*/\\* (PUBLIC\\.[^*]*?)(?:\\*/|\\n)");
+
+    private static boolean seeded; // Контекст и база общие для всех методов класса
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void shouldClassifyEveryStorageQuery() throws IllegalAccessException {
+        Set<String> unclassified = new TreeSet<>();
+        for (Class<?> storage : STORAGES) {
+            for (String name : sqlConstants(storage).keySet()) {
+                String key = storage.getSimpleName() + "." + name;
+                if (!INDEXED.containsKey(key) && !NOT_CHECKED.contains(key)) {
+                    unclassified.add(key);
+                }
+            }
+        }
+        assertEquals(Set.of(), unclassified, "Новые запросы нужно добавить в INDEXED или NOT_CHECKED");
+    }
+
+    @Test
+    void shouldReadTablesThroughIndexes() throws IllegalAccessException {
+        seed();
+        List<String> failures = new ArrayList<>();
+        for (Map.Entry<String, Query> entry : INDEXED.entrySet()) {
+            Query query = entry.getValue();
+            String sql = sqlConstants(query.storage()).get(query.constant());
+            if (sql == null) {
+                fail("Нет константы " + entry.getKey());
+            }
+            String plan = explain(sql, query.parameter());
+            Map<String, List<String>> access = tableAccess(plan);
+            for (String table : query.tables()) {
+                List<String> ways = access.get(table);
+                if (ways == null) {
+                    failures.add(entry.getKey() + ": в плане нет таблицы " + table + "\n" + plan);
+                } else if (ways.stream().anyMatch(way -> isFullScan(way) && !isSortedBy(plan, way, query))) {
+                    failures.add(entry.getKey() + ": таблица " + table + " читается целиком " + ways + "\n" + plan);
+                }
+            }
+        }
+        assertTrue(failures.isEmpty(), String.join("\n\n", failures));
+    }
+
+    @Test
+    void shouldReadFeedPageInIndexOrder() throws IllegalAccessException {
+        seed();
+        String plan = explain(sqlConstants(FeedDbStorage.class).get("LIST_FEED_PAGE_QUERY"), "1");
+        // Страница ленты берется из индекса в нужном порядке, без сортировки всей истории пользователя
+        assertTrue(plan.contains("IDX_EVENTS_USER_EVENT") && plan.contains("/* index sorted */"), plan);
+    }
+
+    private String explain(String sql, String parameter) {
+        String statement = sql.replace("%s", "1, 2")
+                .replace("?", parameter)
+                .replace(";", "");
+        return jdbc.queryForObject("EXPLAIN " + statement, String.class);
+    }
+
+    // Таблица -> способы доступа к ней во всех местах плана
+    private static Map<String, List<String>> tableAccess(String plan) {
+        Map<String, List<String>> access = new HashMap<>();
+        Matcher matcher = TABLE_ACCESS.matcher(plan);
+        while (matcher.find()) {
+            access.computeIfAbsent(matcher.group(1), k -> new ArrayList<>()).add(matcher.group(2).trim());
+        }
+        return access;
+    }
+
+    // Полное чтение: обход таблицы или обход индекса без условия
+    private static boolean isFullScan(String way) {
+        return way.endsWith(".tableScan") || !way.contains(":");
+    }
+
+    // Обход индекса без условия допустим, если он заменяет сортировку и прерывается на LIMIT
+    private static boolean isSortedBy(String plan, String way, Query query) {
+        return way.equals("PUBLIC." + query.orderIndex()) && plan.contains("/* index sorted */");
+    }
+
+    private static Map<String, String> sqlConstants(Class<?> storage) throws IllegalAccessException {
+        Map<String, String> constants = new HashMap<>();
+        for (Field field : storage.getDeclaredFields()) {
+            if (field.getType() == String.class && Modifier.isStatic(field.getModifiers())
+                    && Modifier.isFinal(field.getModifiers())) {
+                field.setAccessible(true);
+                constants.put(field.getName(), (String) field.get(null));
+            }
+        }
+        return constants;
+    }
+
+    private static Map.Entry<String, Query> indexed(Class<?> storage, String constant, String... tables) {
+        return indexedWith(storage, constant, "1", tables);
+    }
+
+    private static Map.Entry<String, Query> indexedWith(Class<?> storage, String constant, String parameter,
+                                                        String... tables) {
+        return Map.entry(storage.getSimpleName() + "." + constant,
+                new Query(storage, constant, parameter, null, List.of(tables)));
+    }
+
+    private static Map.Entry<String, Query> sortedByIndex(Class<?> storage, String constant, String orderIndex,
+                                                          String... tables) {
+        return Map.entry(storage.getSimpleName() + "." + constant,
+                new Query(storage, constant, "1", orderIndex, List.of(tables)));
+    }
+
+    // Данные, похожие на рабочие: лайков и связей намного больше, чем пользователей и фильмов
+    private void seed() {
+        if (seeded) {
+            return;
+        }
+        jdbc.update("INSERT INTO users(email, login, name, birthday) " +
+                "SELECT 'u' || x || '@mail.ru', 'u' || x, 'u' || x, DATE '1990-01-01' FROM SYSTEM_RANGE(1, 500)");
+        jdbc.update("INSERT INTO films(film_name, description, release_date, duration, mpa) " +
+                "SELECT 'f' || x, 'd', DATEADD(DAY, x, DATE '2000-01-01'), 100, MOD(x, 5) + 1 " +
+                "FROM SYSTEM_RANGE(1, 1000)");
+        jdbc.update("INSERT INTO likes(film_id, user_id) SELECT DISTINCT MOD(x * 7, 1000) + 1, MOD(x, 500) + 1 " +
+                "FROM SYSTEM_RANGE(1, 20000)");
+        jdbc.update("INSERT INTO genres_film(film_id, genre_id) SELECT x, MOD(x, 6) + 1 FROM SYSTEM_RANGE(1, 1000)");
+        jdbc.update("INSERT INTO directors(dir_name) SELECT 'dir' || x FROM SYSTEM_RANGE(1, 100)");
+        jdbc.update("INSERT INTO directors_films(film_id, dir_id) SELECT x, MOD(x, 100) + 1 " +
+                "FROM SYSTEM_RANGE(1, 1000)");
+        jdbc.update("INSERT INTO friendship(user_id, friend_id) SELECT DISTINCT MOD(x, 500) + 1, " +
+                "MOD(x * 13, 500) + 1 FROM SYSTEM_RANGE(1, 5000) WHERE MOD(x, 500) <> MOD(x * 13, 500)");
+        jdbc.update("INSERT INTO events(user_id, timestamp, entity_id, event_type, operation) " +
+                "SELECT MOD(x, 500) + 1, CURRENT_TIMESTAMP, x, 'LIKE', 'ADD' FROM SYSTEM_RANGE(1, 20000)");
+        jdbc.update("INSERT INTO reviews(film_id, user_id, content, is_positive) " +
+                "SELECT MOD(x, 1000) + 1, MOD(x / 1000, 500) + 1, 'r', TRUE FROM SYSTEM_RANGE(1, 5000)");
+        jdbc.update("INSERT INTO reviews_likes(review_id, user_id, is_useful) " +
+                "SELECT DISTINCT MOD(x, 5000) + 1, MOD(x * 3, 500) + 1, TRUE FROM SYSTEM_RANGE(1, 20000)");
+        jdbc.execute("ANALYZE");
+        seeded = true;
+    }
+
+    private record Query(Class<?> storage, String constant, String parameter, String orderIndex,
+                         List<String> tables) {
+    }
+}
@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.storage.genre;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.mapper.GenreRowMapper;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+class GenreDbStorageTest {
+
+    private JdbcTemplate jdbc;
+    private GenreDbStorage storage;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        jdbc = mock(JdbcTemplate.class);
+        when(jdbc.query(anyString(), any(RowMapper.class))).thenReturn(List.of(
+                genre(1L, "Комедия"), genre(2L, "Драма"), genre(4L, "Триллер")));
+        storage = new GenreDbStorage(jdbc, new GenreRowMapper());
+        storage.refresh();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldServeGenresFromMemory() {
+        assertEquals(3, storage.getAllGenres().size());
+        assertEquals("Драма", storage.getGenreById(2L).orElseThrow().getName());
+        assertTrue(storage.getGenreById(3L).isEmpty()); // Пропуск в нумерации
+        assertTrue(storage.getGenreById(100L).isEmpty());
+        assertEquals(List.of(genre(1L, "Комедия"), genre(4L, "Триллер")),
+                storage.getListGenre(List.of(genre(4L, null), genre(3L, null), genre(1L, null), genre(4L, null))));
+        // Справочник загружен один раз при refresh(), чтения в базу не ходят
+        verify(jdbc).query(anyString(), any(RowMapper.class));
+        verifyNoMoreInteractions(jdbc);
+    }
+
+    @Test
+    void shouldNotExposeCachedInstances() {
+        storage.getGenreById(1L).orElseThrow().setName("Изменено");
+        storage.getAllGenres().getFirst().setName("Изменено");
+        assertEquals("Комедия", storage.getGenreById(1L).orElseThrow().getName());
+    }
+
+    private static Genre genre(Long id, String name) {
+        return Genre.builder()
+                .id(id)
+                .name(name)
+                .build();
+    }
+}
@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.storage.like;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import ru.yandex.practicum.filmorate.AbstractIntegrationTest;
+import ru.yandex.practicum.filmorate.dto.film.FilmDto;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LikeDbStorageTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private LikeDbStorage likeDbStorage;
+
+    @Test
+    void shouldKeepLikeCountInSyncWithLikes() {
+        Long first = createUser("like-count-first");
+        Long second = createUser("like-count-second");
+        Long popular = createFilm("Популярный");
+        Long other = createFilm("Другой по счетчику");
+
+        filmService.addLike(popular, first);
+        filmService.addLike(popular, first); // Повторный лайк не должен увеличивать счетчик
+        filmService.addLike(popular, second);
+        filmService.addLike(other, first);
+        assertEquals(2, likeCount(popular));
+        assertEquals(1, likeCount(other));
+
+        // В общей базе есть фильмы других тестов, поэтому проверяется порядок своих фильмов в топе
+        List<Long> top = filmService.getMostPopularByNumberOfLikes(1000L, null, null).stream()
+                .map(FilmDto::getId)
+                .filter(id -> id.equals(popular) || id.equals(other))
+                .toList();
+        assertEquals(List.of(popular, other), top);
+        assertEquals(List.of(popular), filmService.commonFilms(first, second).stream()
+                .map(FilmDto::getId)
+                .toList());
+        assertEquals(List.of(other), filmService.search("Другой по счетчику", List.of("title")).stream()
+                .map(FilmDto::getId)
+                .toList());
+
+        filmService.deleteLike(popular, second);
+        assertEquals(1, likeCount(popular));
+
+        userService.deleteUser(first);
+        assertEquals(0, likeCount(popular));
+        assertEquals(0, likeCount(other));
+    }
+
+    @Test
+    void shouldReconcileBrokenLikeCounts() {
+        Long user = createUser("reconcile");
+        Long film = createFilm("Сверка");
+        filmService.addLike(film, user);
+        jdbc.update("UPDATE films SET like_count = 100 WHERE film_id = ?", film);
+
+        assertTrue(likeDbStorage.reconcileLikeCounts() >= 1);
+        assertEquals(1, likeCount(film));
+        assertEquals(0, likeDbStorage.reconcileLikeCounts());
+    }
+}
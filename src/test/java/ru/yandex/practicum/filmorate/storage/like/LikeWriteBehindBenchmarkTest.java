@@ -0,0 +1,132 @@
+package ru.yandex.practicum.filmorate.storage.like;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.service.film.FilmService;
+import ru.yandex.practicum.filmorate.service.importing.BulkImportService;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/* Бенчмарк отложенной записи лайков: несколько потоков лайкают один популярный фильм
+(каждый лайк меняет одну и ту же строку FILMS), сначала с записью сразу, затем через буфер.
+Запускается только явно: mvn test -Dtest=LikeWriteBehindBenchmarkTest -Dbenchmark=true */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@SpringBootTest(properties = {"spring.profiles.active=test",
+        "spring.datasource.url=jdbc:h2:mem:like-write-benchmark;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "filmorate.likes.write-behind.enabled=true"})
+class LikeWriteBehindBenchmarkTest {
+
+    private static final int USERS = 40_000;
+    private static final int THREADS = 8;
+
+    @Autowired
+    private LikeDbStorage bufferedStorage;
+
+    @Autowired
+    private BulkImportService bulkImportService;
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private RowMapper<Like> mapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void compareDirectAndWriteBehindLikes() throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < USERS; i++) {
+            body.append("{\"email\":\"fan").append(i).append("@mail.ru\",\"login\":\"fan").append(i)
+                    .append("\",\"birthday\":\"1990-01-01\"}\n");
+        }
+        bulkImportService.importUsers(new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8)));
+        long[] userIds = jdbc.queryForList("SELECT user_id FROM users ORDER BY user_id", Long.class).stream()
+                .mapToLong(Long::longValue)
+                .toArray();
+        // Хранилище без буфера создается вручную; транзакцию, которую дал бы прокси Spring, открывает бенчмарк
+        LikeDbStorage directStorage = new LikeDbStorage(jdbc, mapper, transactionManager, 1000, false, 500, 50_000);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        Long directFilm = createFilm("Сразу");
+        long directTime = likeAll((filmId, userId) -> transaction.executeWithoutResult(status ->
+                directStorage.addLikeToFilm(filmId, userId, Instant.now())), directFilm, userIds, 0, USERS / 2);
+        Long bufferedFilm = createFilm("Через буфер");
+        long bufferedTime = likeAll((filmId, userId) -> bufferedStorage.addLikeToFilm(filmId, userId, Instant.now()),
+                bufferedFilm, userIds, USERS / 2, USERS);
+        long start = System.nanoTime();
+        bufferedStorage.flushPendingLikes(); // Время последнего сброса тоже учитывается
+        bufferedTime += System.nanoTime() - start;
+
+        assertEquals(USERS / 2, likeCount(directFilm));
+        assertEquals(USERS / 2, likeCount(bufferedFilm));
+        System.out.printf("Запись сразу: %d лайков за %d мс, %.0f лайков/с%n",
+                USERS / 2, directTime / 1_000_000, USERS / 2 * 1e9 / directTime);
+        System.out.printf("Отложенная запись: %d лайков за %d мс, %.0f лайков/с%n",
+                USERS / 2, bufferedTime / 1_000_000, USERS / 2 * 1e9 / bufferedTime);
+    }
+
+    private long likeAll(LikeAction action, Long filmId, long[] userIds, int from, int to) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                int first = from + thread;
+                futures.add(executor.submit(() -> {
+                    for (int i = first; i < to; i += THREADS) {
+                        action.like(filmId, userIds[i]);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            return System.nanoTime() - start;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @FunctionalInterface
+    private interface LikeAction {
+        void like(Long filmId, Long userId);
+    }
+
+    private int likeCount(Long filmId) {
+        return jdbc.queryForObject("SELECT like_count FROM films WHERE film_id = ?", Integer.class, filmId);
+    }
+
+    private Long createFilm(String name) {
+        return filmService.createFilm(Film.builder()
+                .name(name)
+                .description("Описание")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .mpa(Mpa.builder().id(1L).build())
+                .build()).getId();
+    }
+}
@@ -0,0 +1,92 @@
+package ru.yandex.practicum.filmorate.storage.like;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.yandex.practicum.filmorate.AbstractIntegrationTest;
+import ru.yandex.practicum.filmorate.model.Like;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/* Отложенная запись лайков. Хранилище с буфером создается вручную поверх общего контекста: сброса
+по таймеру у него нет, буфер сбрасывается явно или когда в нем набралось BATCH_SIZE пар. */
+class LikeWriteBehindTest extends AbstractIntegrationTest {
+
+    private static final int BATCH_SIZE = 3;
+
+    @Autowired
+    private RowMapper<Like> mapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private LikeDbStorage likeDbStorage;
+
+    @BeforeEach
+    void setUp() {
+        likeDbStorage = new LikeDbStorage(jdbc, mapper, transactionManager, 1000, true, BATCH_SIZE, 50_000);
+    }
+
+    @Test
+    void shouldCoalesceOperationsUntilFlush() {
+        Long user = createUser("write-behind-coalesce");
+        Long film = createFilm("Схлопывание");
+
+        assertTrue(likeDbStorage.addLikeToFilm(film, user, Instant.now()));
+        // Повтор виден по буферу, до записи в базу
+        assertFalse(likeDbStorage.addLikeToFilm(film, user, Instant.now()));
+        assertEquals(0, likeRows(film));
+        likeDbStorage.deleteLike(film, user); // Лайк и его отмена до сброса в базу не попадают
+        assertEquals(0, likeDbStorage.getPendingLikesCount());
+        assertThrows(RuntimeException.class, () -> likeDbStorage.deleteLike(film, user));
+
+        likeDbStorage.addLikeToFilm(film, user, Instant.now());
+        likeDbStorage.flushPendingLikes();
+        assertEquals(1, likeRows(film));
+        assertEquals(1, likeCount(film));
+
+        likeDbStorage.deleteLike(film, user);
+        // Повторный лайк переписывает строку, счетчик не меняется
+        likeDbStorage.addLikeToFilm(film, user, Instant.now());
+        assertEquals(1, likeDbStorage.getLikesByFilmId(film).size()); // Чтение сначала сбрасывает буфер
+        assertEquals(1, likeCount(film));
+        assertEquals(0, likeDbStorage.getPendingLikesCount());
+    }
+
+    @Test
+    void shouldFlushWhenBatchIsFull() {
+        Long film = createFilm("Пакет");
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            likeDbStorage.addLikeToFilm(film, createUser("write-behind-batch" + i), Instant.now());
+        }
+        assertEquals(0, likeDbStorage.getPendingLikesCount());
+        assertEquals(3, likeRows(film));
+        assertEquals(3, likeCount(film));
+    }
+
+    @Test
+    void shouldSkipLikesOfDeletedFilm() {
+        Long user = createUser("write-behind-skipped");
+        Long deleted = createFilm("Удаленный");
+        Long kept = createFilm("Оставшийся");
+        likeDbStorage.addLikeToFilm(deleted, user, Instant.now());
+        likeDbStorage.addLikeToFilm(kept, user, Instant.now());
+        filmService.deleteFilm(deleted); // Фильм удаляется, пока его лайк еще в буфере
+
+        likeDbStorage.flushPendingLikes(); // Лайк удаленного фильма пропускается, остальные записываются
+        assertEquals(0, likeDbStorage.getPendingLikesCount());
+        assertEquals(1, likeRows(kept));
+        assertEquals(1, likeCount(kept));
+    }
+
+    private int likeRows(Long filmId) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM likes WHERE film_id = ?", Integer.class, filmId);
+    }
+}